@@ -0,0 +1,220 @@
+package pixel_kernels;
+
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+import java.util.Arrays;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelKernels} on top of the incubating Vector API. Only compiled with the maven profile {@code vector} and
+ * loaded by {@link KernelBackends} when the JVM runs with {@code --add-modules jdk.incubator.vector}. All arithmetic is
+ * the same integer arithmetic as in {@link ScalarPixelKernels}, columns that do not fill a whole vector are handled by
+ * scalar tails, so results are identical.
+ */
+public class VectorPixelKernels implements PixelKernels {
+
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Short> SHORTS =
+      VectorSpecies.of(short.class, VectorShape.forBitSize(Math.max(64, INTS.vectorBitSize() / 2)));
+
+  //Narrowing ints to shorts only keeps the lane count when the short vector is half as wide
+  private static final boolean NARROW_SOBEL = SHORTS.length() == INTS.length();
+  private static final int MAX_CACHED_SOBEL_TAPS = 8;
+
+  //Offset tables of the recently used masks and strides, replaced as a whole so strips on other threads see a
+  //consistent array
+  private volatile SobelTaps[] sobelTapCache = new SobelTaps[0];
+
+  @Override
+  public void sobelRegion(IntPlane raw, int[][] mask, ShortPlane out, int fromRow, int toRow, int fromCol,
+      int toCol) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
+    int[] data = raw.getData();
+    int stride = raw.getStride();
+    short[] outData = out.getData();
+    int outStride = out.getStride();
+    int lanes = INTS.length();
+
+    SobelTaps sobelTaps = sobelTaps(mask, stride);
+    int[] offsets = sobelTaps.offsets;
+    int[] weights = sobelTaps.weights;
+    int taps = offsets.length;
+
+    int firstCol = Math.max(3, fromCol + 1);
+    int lastCol = Math.min(width - 3, toCol + 1);
+
+    for (int r = Math.max(3, fromRow + 1); r < Math.min(height - 3, toRow + 1); r++) {
+      int outRow = (r - 1) * outStride - 1;
+      int row = r * stride;
+      int c = firstCol;
+
+      for (; NARROW_SOBEL && c + lanes <= lastCol; c += lanes) {
+        IntVector sum = IntVector.zero(INTS);
+
+        for (int t = 0; t < taps; t++) {
+          sum = sum.add(IntVector.fromArray(INTS, data, row + c + offsets[t]).mul(weights[t]));
+        }
+
+        ((ShortVector) sum.castShape(SHORTS, 0)).intoArray(outData, outRow + c);
+      }
+
+      for (; c < lastCol; c++) {
+        int sum = 0;
+
+        for (int t = 0; t < taps; t++) {
+          sum += weights[t] * data[row + c + offsets[t]];
+        }
+
+        outData[outRow + c] = (short) sum;
+      }
+    }
+  }
+
+  /**
+   * Non zero taps of {@code mask} as offsets into a plane of {@code stride}, looked up by the identity of the mask.
+   */
+  private SobelTaps sobelTaps(int[][] mask, int stride) {
+    SobelTaps[] cache = sobelTapCache;
+    for (SobelTaps cached : cache) {
+      if (cached.mask == mask && cached.stride == stride) {
+        return cached;
+      }
+    }
+
+    SobelTaps created = new SobelTaps(mask, stride);
+    //Both masks of a few frame sizes are in use at a time, a full cache starts over
+    SobelTaps[] grown = cache.length < MAX_CACHED_SOBEL_TAPS ? Arrays.copyOf(cache, cache.length + 1) : new SobelTaps[1];
+    grown[grown.length - 1] = created;
+    sobelTapCache = grown;
+    return created;
+  }
+
+  @Override
+  public void gaussianHorizontalRegion(IntPlane raw, IntPlane out, int[] taps, int shift, int fromRow, int toRow,
+      int fromCol, int toCol) {
+    int kernelRadius = taps.length / 2;
+    int rounding = 1 << (shift - 1);
+    int width = raw.getWidth();
+    int[] in = raw.getData();
+    int inStride = raw.getStride();
+    int[] outData = out.getData();
+    int outStride = out.getStride();
+    int innerFrom = Math.min(kernelRadius, width);
+    int innerTo = Math.max(innerFrom, width - kernelRadius);
+    int lanes = INTS.length();
+
+    for (int r = fromRow; r < toRow; r++) {
+      int inRow = r * inStride;
+      int outRow = r * outStride;
+
+      for (int c = fromCol; c < Math.min(toCol, innerFrom); c++) {
+        outData[outRow + c] = ScalarPixelKernels.clampedHorizontalSum(in, inRow, width, c, taps, shift);
+      }
+
+      int innerEnd = Math.min(toCol, innerTo);
+      int c = Math.max(fromCol, innerFrom);
+      for (; c + lanes <= innerEnd; c += lanes) {
+        int start = inRow + c - kernelRadius;
+        IntVector sum = IntVector.broadcast(INTS, rounding);
+
+        for (int k = 0; k < taps.length; k++) {
+          sum = sum.add(IntVector.fromArray(INTS, in, start + k).mul(taps[k]));
+        }
+
+        sum.lanewise(VectorOperators.ASHR, shift).intoArray(outData, outRow + c);
+      }
+
+      for (; c < innerEnd; c++) {
+        int start = inRow + c - kernelRadius;
+        int sum = rounding;
+
+        for (int k = 0; k < taps.length; k++) {
+          sum += taps[k] * in[start + k];
+        }
+
+        outData[outRow + c] = sum >> shift;
+      }
+
+      for (c = Math.max(fromCol, innerTo); c < toCol; c++) {
+        outData[outRow + c] = ScalarPixelKernels.clampedHorizontalSum(in, inRow, width, c, taps, shift);
+      }
+    }
+  }
+
+  @Override
+  public void gaussianVerticalRegion(IntPlane in, IntPlane out, int[] taps, int shift, int fromRow, int toRow,
+      int fromCol, int toCol) {
+    int kernelRadius = taps.length / 2;
+    int rounding = 1 << (shift - 1);
+    int height = in.getHeight();
+    int[] inData = in.getData();
+    int inStride = in.getStride();
+    int[] outData = out.getData();
+    int outStride = out.getStride();
+    int lanes = INTS.length();
+
+    for (int r = fromRow; r < toRow; r++) {
+      int outRow = r * outStride;
+      int c = fromCol;
+
+      for (; c + lanes <= toCol; c += lanes) {
+        IntVector sum = IntVector.broadcast(INTS, rounding);
+
+        for (int k = 0; k < taps.length; k++) {
+          int inRow = ScalarPixelKernels.clamp(r + k - kernelRadius, height) * inStride;
+
+          sum = sum.add(IntVector.fromArray(INTS, inData, inRow + c).mul(taps[k]));
+        }
+
+        sum.lanewise(VectorOperators.ASHR, shift).intoArray(outData, outRow + c);
+      }
+
+      for (; c < toCol; c++) {
+        int sum = rounding;
+
+        for (int k = 0; k < taps.length; k++) {
+          sum += taps[k] * inData[ScalarPixelKernels.clamp(r + k - kernelRadius, height) * inStride + c];
+        }
+
+        outData[outRow + c] = sum >> shift;
+      }
+    }
+  }
+
+  private static final class SobelTaps {
+
+    private final int[][] mask;
+    private final int stride;
+    private final int[] offsets;
+    private final int[] weights;
+
+    private SobelTaps(int[][] mask, int stride) {
+      int taps = 0;
+      for (int[] maskRow : mask) {
+        for (int weight : maskRow) {
+          taps += weight != 0 ? 1 : 0;
+        }
+      }
+
+      this.mask = mask;
+      this.stride = stride;
+      this.offsets = new int[taps];
+      this.weights = new int[taps];
+      int tap = 0;
+      for (int kr = -1; kr < 4; kr++) {
+        for (int kc = -1; kc < 4; kc++) {
+          if (mask[kr + 1][kc + 1] != 0) {
+            offsets[tap] = kr * stride + kc;
+            weights[tap] = mask[kr + 1][kc + 1];
+            tap++;
+          }
+        }
+      }
+    }
+  }
+}
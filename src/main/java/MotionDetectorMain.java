@@ -1,134 +1,128 @@
-import static org.opencv.core.CvType.CV_8UC1;
-import static org.opencv.videoio.Videoio.CAP_PROP_FOURCC;
-import static org.opencv.videoio.Videoio.CAP_PROP_FPS;
-import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_COUNT;
-import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT;
-import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH;
-
 import canny_filter.CannyEdgeDetector;
-import contour_finder.Contour;
-import contour_finder.ContoursFinder;
-import contour_finder.RectangleForCountursDrowingTool;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.opencv.core.Core;
-import org.opencv.core.Mat;
-import org.opencv.core.Scalar;
 import org.opencv.core.Size;
-import org.opencv.imgproc.Imgproc;
-import org.opencv.videoio.VideoCapture;
-import org.opencv.videoio.VideoWriter;
-import process_bar.ProcessBar;
-import utils.ImageUtils;
+import video_pipeline.BatchReport;
+import video_pipeline.BatchRunner;
+import video_pipeline.PipelineParameters;
+import video_pipeline.PipelineReport;
+import video_pipeline.VideoFileProcessor;
 
 @Slf4j
 public class MotionDetectorMain {
 
-  private static final int DIFF_FRAMES_COUNT = 4;
+  //Depth of the edge map history, motion is searched between its oldest and newest map
+  private static final int DIFF_FRAMES_COUNT = Integer.getInteger("diffFramesCount", 4);
+
+  //Motion components smaller than this are kept only as fragments merged into bigger boxes
+  private static final int MIN_FRAGMENT_PIXELS = 20;
+  private static final int MIN_OBJECT_PIXELS = 500;
+  private static final int MERGE_GAP = 8;
+
+  //Detection runs at least every n-th frame, frames in between are drawn with the track positions predicted by the tracker
+  private static final int DETECTION_INTERVAL = 1;
+  //The interval grows up to this value when frames take longer than the frame period of the output video, it is
+  //capped by the misses a confirmed track survives
+  private static final int MAX_DETECTION_INTERVAL = 5;
+
+  //Frames where no block differs by this mean luma from the last moving frame are written without detection
+  private static final int GATE_THRESHOLD = 6;
+
+  //Frames larger than this are detected on the first pyramid level that fits, the video is written in full size
+  private static final Size MAX_DETECTION_SIZE = new Size(800, 600);
+  //Pyramid level used for detection regardless of the video size, -1 picks it by MAX_DETECTION_SIZE
+  private static final int PYRAMID_LEVEL = Integer.getInteger("pyramidLevel", -1);
 
-  private static final Size MAX_VIDEO_SIZE = new Size(800, 600);
+  //Write motion events as JSON Lines instead of annotated videos
+  private static final boolean HEADLESS = Boolean.getBoolean("headless");
 
-  private static CannyEdgeDetector detector = new CannyEdgeDetector();
+  //Videos of a batch processed at once, their frames share the detection workers
+  private static final int PARALLEL_FILES = Integer.getInteger("parallelFiles", 2);
 
   public static final String TEST_PATH = "C:\\Users\\Nikita_Kovalev1\\IdeaProjects\\motion-detector\\src\\main\\resources\\test\\";
   public static final String ORIGINAL_FRAME_PATH = "C:\\Users\\Nikita_Kovalev1\\IdeaProjects\\motion-detector\\src\\main\\resources\\original_frames\\";
   public static final String PROCESSING_RESULT_PATH = "C:\\Users\\Nikita_Kovalev1\\IdeaProjects\\motion-detector\\src\\main\\resources\\execution_result\\";
 
+  /**
+   * Entry point of motion detection. A directory or a {@code .txt}/{@code .lst} manifest listing videos starts a batch,
+   * annotated copies are written to {@code -DoutputDir} and {@code -DparallelFiles} videos are processed at once.
+   * Anything else is opened as a single video, stream URL or image sequence pattern. With {@code -Dheadless=true} only
+   * the motion events are written.
+   *
+   * @param args video, directory or manifest, optionally the number of detection workers and the number of frames
+   *             decoded ahead
+   */
   @SneakyThrows
   public static void main(String[] args) {
     System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
 
-    String videoPath = args[0];
-    VideoCapture capture = new VideoCapture(videoPath);
-
-    double fps = capture.get(CAP_PROP_FPS);
-    int codec = (int) capture.get(CAP_PROP_FOURCC);
-    if (fps > 30) {
-      fps = 30;
+    PipelineParameters parameters = PipelineParameters.builder()
+        .pyramidLevel(PYRAMID_LEVEL)
+        .diffFramesCount(DIFF_FRAMES_COUNT)
+        .minFragmentPixels(MIN_FRAGMENT_PIXELS)
+        .minObjectPixels(MIN_OBJECT_PIXELS)
+        .mergeGap(MERGE_GAP)
+        .detectionInterval(DETECTION_INTERVAL)
+        .gateThreshold(GATE_THRESHOLD)
+        .maxDetectionInterval(MAX_DETECTION_INTERVAL)
+        .budgetFromFrameRate(true)
+        .build();
+    if (args.length > 1) {
+      parameters.setWorkers(Integer.parseInt(args[1]));
     }
-
-    int width = (int) capture.get(CAP_PROP_FRAME_WIDTH);
-    int height = (int) capture.get(CAP_PROP_FRAME_HEIGHT);
-
-    Size videoSize = new Size(width, height);
-
-    if (videoSize.width > MAX_VIDEO_SIZE.width || videoSize.height > MAX_VIDEO_SIZE.height) {
-      videoSize = MAX_VIDEO_SIZE;
+    if (args.length > 2) {
+      parameters.setQueueDepth(Integer.parseInt(args[2]));
     }
 
-    VideoWriter writer = new VideoWriter("result.mp4", codec, fps, videoSize);
+    File source = new File(args[0]);
+    if (source.isDirectory() || BatchRunner.isManifest(source)) {
+      processBatch(source, parameters);
+    } else {
+      processVideo(args[0], parameters);
+    }
+  }
 
-    int totalFrames = (int) capture.get(CAP_PROP_FRAME_COUNT);
-    ProcessBar processBar = new ProcessBar(totalFrames, "Motion detection progress");
+  private static void processVideo(String input, PipelineParameters parameters) throws Exception {
+    VideoFileProcessor processor =
+        new VideoFileProcessor(parameters, CannyEdgeDetector::new, null, MAX_DETECTION_SIZE, HEADLESS);
 
     LocalDateTime start = LocalDateTime.now();
-    LinkedList<BufferedImage> previousFrames = new LinkedList<>();
-    while (capture.isOpened()) {
-      Mat frame = new Mat();
-      if (!capture.read(frame)) {
-        processBar.step();
-        break;
-      }
-      frame = ImageUtils.resizeFrameIfNeeded(frame, videoSize);
+    PipelineReport report = processor.process(input, new File(HEADLESS ? "result.jsonl" : "result.mp4"), true);
 
-      BufferedImage frameForEdgesDetection = ImageUtils.mat2BufferedImage(frame);
-      BufferedImage detectedEdges = detector.detectEdges(frameForEdgesDetection).getDefaultResult();
+    log.info("Frames written: {}, idle: {}, shed without detection: {}, last detection interval: {}",
+        report.getWrittenFrames(), report.getIdleFrames(), report.getShedFrames(), report.getLastDetectionInterval());
+    log.info("Frames that skipped detection: {}%", Math.round(report.getSkipRatio() * 100));
+    log.info("Result saved in: {}", new File(".").getAbsolutePath());
+    log.info("Processing time in minutes: {}", ChronoUnit.MINUTES.between(start, LocalDateTime.now()));
+  }
 
-      previousFrames.add(detectedEdges);
-      if (previousFrames.size() < DIFF_FRAMES_COUNT) {
-        writer.write(frame);
-        processBar.step();
-        continue;
+  private static void processBatch(File source, PipelineParameters parameters) throws Exception {
+    List<File> inputs = BatchRunner.listInputs(source);
+    File outputDirectory = new File(System.getProperty("outputDir", "results"));
+    ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parameters.getWorkers()));
+
+    try {
+      VideoFileProcessor processor =
+          new VideoFileProcessor(parameters, CannyEdgeDetector::new, workers, MAX_DETECTION_SIZE, HEADLESS);
+      BatchReport report = new BatchRunner(processor, PARALLEL_FILES).run(inputs, outputDirectory);
+
+      log.info("Files processed: {}, failed: {}, frames written: {}", report.getProcessedFiles(),
+          report.getFailedFiles().size(), report.getWrittenFrames());
+      log.info("Throughput: {} frames/s, {} files/s", String.format("%.1f", report.getFramesPerSecond()),
+          String.format("%.3f", report.getFilesPerSecond()));
+      for (File failed : report.getFailedFiles()) {
+        log.warn("Failed: {}", failed);
       }
-
-      BufferedImage differenceImage = ImageUtils.getImageAbsDiff(previousFrames);
-      Mat frameDelta = ImageUtils.bufferedImage2Mat(differenceImage);
-
-      Mat morphingMatrix = new Mat(new Size(2, 2), CV_8UC1, new Scalar(255));
-      Mat clearMat = new Mat();
-      Imgproc.morphologyEx(frameDelta, clearMat, Imgproc.MORPH_OPEN, morphingMatrix);
-      Mat dilate = new Mat();
-      Imgproc.dilate(clearMat, dilate, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
-
-      BufferedImage bufferedImage = ImageUtils.mat2BufferedImage(dilate);
-//      int i = processBar.getRemain();
-//      ImageIO.write(frameForEdgesDetection, "png", new File(PROCESSING_RESULT_PATH + "_" + i + ".png"));
-//      previousFrames.forEach(img ->
-//      {
-//        try {
-//          ImageIO.write(detectedEdges, "png", new File(PROCESSING_RESULT_PATH + "_detection_" + i + "_" + previousFrames.indexOf(img) + ".png"));
-//        } catch (IOException e) {
-//          e.printStackTrace();
-//        }
-//      });
-//      ImageIO.write(detectedEdges, "png", new File(PROCESSING_RESULT_PATH + "_detection_" + i + ".png"));
-//      ImageIO.write(differenceImage, "png", new File(PROCESSING_RESULT_PATH + "_difference_" + i + ".png"));
-      ContoursFinder contoursFinder = new ContoursFinder(500);
-
-      List<Contour> contours = contoursFinder.findContours(bufferedImage);
-
-      RectangleForCountursDrowingTool.drawRectangleForContour(frame, contours);
-
-//      int i = processBar.getRemain();
-//      ImageIO.write(detectedEdges, "png", new File(PROCESSING_RESULT_PATH + "_detection_" + i + ".png"));
-//      ImageIO.write(differenceImage, "png", new File(PROCESSING_RESULT_PATH + "_difference_" + i + ".png"));
-//      ImageIO.write(ImageUtils.mat2BufferedImage(clearMat), "png", new File(PROCESSING_RESULT_PATH + "_opening_" + i + ".png"));
-//      ImageIO.write(ImageUtils.mat2BufferedImage(dilate), "png", new File(PROCESSING_RESULT_PATH + "_dilate_" + i + ".png"));
-//      ImageIO.write(ImageUtils.mat2BufferedImage(frame), "png", new File(PROCESSING_RESULT_PATH + "final_" + i + ".png"));
-
-      writer.write(frame);
-      processBar.step();
+      log.info("Results saved in: {}", outputDirectory.getAbsolutePath());
+    } finally {
+      workers.shutdownNow();
     }
-
-    log.info("Video saved in: {}", new File(".").getAbsolutePath());
-    log.info("Processing time in minutes: {}", ChronoUnit.MINUTES.between(start, LocalDateTime.now()));
-
-    writer.release();
   }
 }
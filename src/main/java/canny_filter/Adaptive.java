@@ -1,75 +1,111 @@
 package canny_filter;
 
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import pixel_kernels.KernelBackends;
+
+/**
+ * Adaptive (edge preserving) blur: every pixel becomes the average of its 3x3 neighbourhood weighted by
+ * {@code exp(-sqrt(d) / (2 * h * h))}, where {@code d} is the Sobel gradient magnitude of the neighbour. Gradients are
+ * computed once per frame, magnitudes are mapped to weights through a table cached per {@code h}.
+ */
 public class Adaptive {
 
-  public int[][] blurImage(int[][] gs) {
+  private static final double DEFAULT_H = 0.5;
+  private static final int MAX_MAGNITUDE = (int) Math.ceil(Sobel.MAX_RESPONSE * Math.sqrt(2));
 
-    double h = 0.5;
+  private static final Map<Double, double[]> WEIGHTS = new ConcurrentHashMap<>();
 
-    return adaptiveBlur(gs, h);
-  }
+  public IntPlane blurImage(IntPlane gs) {
+    int height = gs.getHeight();
+    int width = gs.getWidth();
+    ShortPlane gX = new ShortPlane(width - 4, height - 4);
+    ShortPlane gY = new ShortPlane(width - 4, height - 4);
+    ShortPlane magnitude = new ShortPlane(width - 4, height - 4);
+    IntPlane result = new IntPlane(width, height);
 
-  private int[][] adaptiveBlur(int[][] gs, double h) {
-    int height = gs.length;
-    int width = gs[0].length;
+    gradientMagnitudeRows(gs, gX, gY, magnitude, 0, magnitude.getHeight());
+    averageRows(gs, magnitude, result, DEFAULT_H, 0, height);
 
-    int[][] result = new int[height][width];
+    return result;
+  }
 
-    Sobel sobel = new Sobel();
+  /**
+   * Computes the Sobel gradient magnitude of {@code gs} for the rows {@code [fromRow, toRow)} of the gradient planes,
+   * which are 4 pixels smaller than {@code gs} and laid out as {@link Sobel#process(IntPlane, int[][], ShortPlane)}
+   * leaves them.
+   */
+  public void gradientMagnitudeRows(IntPlane gs, ShortPlane gX, ShortPlane gY, ShortPlane magnitude, int fromRow,
+      int toRow) {
+    KernelBackends.best().sobelRows(gs, Sobel.MASK_H, gX, fromRow, toRow);
+    KernelBackends.best().sobelRows(gs, Sobel.MASK_V, gY, fromRow, toRow);
+
+    int width = magnitude.getWidth();
+    int stride = magnitude.getStride();
+    short[] x = gX.getData();
+    short[] y = gY.getData();
+    short[] out = magnitude.getData();
+
+    for (int r = fromRow; r < toRow; r++) {
+      for (int p = r * stride; p < r * stride + width; p++) {
+        out[p] = (short) Math.sqrt(x[p] * x[p] + y[p] * y[p]);
+      }
+    }
+  }
 
-    for (int y = 2; y < height - 4; y++) {
-      for (int x = 2; x < width - 4; x++) {
+  /**
+   * Weighted 3x3 average for the rows {@code [fromRow, toRow)} of {@code result}. The gradient of the pixel
+   * {@code (x, y)} is stored at {@code (x - 1, y - 1)} of {@code magnitude} and covers {@code [3, size - 3)}, pixels
+   * outside of the image and outside of that area use the nearest available value.
+   */
+  public void averageRows(IntPlane gs, ShortPlane magnitude, IntPlane result, double h, int fromRow, int toRow) {
+    double[] weights = WEIGHTS.computeIfAbsent(h, Adaptive::createWeights);
+    int height = gs.getHeight();
+    int width = gs.getWidth();
+    int[] in = gs.getData();
+    int stride = gs.getStride();
+    short[] mag = magnitude.getData();
+    int magStride = magnitude.getStride();
+    int[] out = result.getData();
+    int outStride = result.getStride();
+
+    for (int y = fromRow; y < toRow; y++) {
+      for (int x = 0; x < width; x++) {
         double N = 0;
         double sum = 0;
 
         for (int j = -1; j < 2; j++) {
-          for (int i = -1; i < 2; i++) {
-            int gx = sobel.getGradientInPoint(gs, Sobel.MASK_H, y + j, x + i);
-            int gy = sobel.getGradientInPoint(gs, Sobel.MASK_V, y + j, x + i);
+          int ny = clamp(y + j, 0, height - 1);
+          int my = clamp(ny - 1, 2, height - 5);
 
-            double d = Math.sqrt(gx * gx + gy * gy);
-            double w = Math.exp(-(Math.sqrt(d) / (2 * h * h)));
+          for (int i = -1; i < 2; i++) {
+            int nx = clamp(x + i, 0, width - 1);
+            int mx = clamp(nx - 1, 2, width - 5);
+            double w = weights[mag[my * magStride + mx]];
 
             N += w;
-
-            sum += gs[y + j][x + i] * w;
+            sum += in[ny * stride + nx] * w;
           }
         }
 
-        result[y][x] = (int) Math.floor(sum / N);
+        out[y * outStride + x] = N > 0 ? (int) Math.floor(sum / N) : in[y * stride + x];
       }
     }
-
-    return result;
   }
 
-  private int findN(int[][] d, double h) {
-    int height = d.length;
-    int width = d[0].length;
-    int N = 0;
+  private static double[] createWeights(double h) {
+    double[] weights = new double[MAX_MAGNITUDE + 1];
 
-    for (int i = 0; i < height - 1; i++) {
-      for (int j = 0; j < width - 1; j++) {
-        N += Math.exp(-((Math.sqrt(d[i + 1][j + 1])) / (2 * h * h)));
-      }
+    for (int d = 0; d < weights.length; d++) {
+      weights[d] = Math.exp(-(Math.sqrt(d) / (2 * h * h)));
     }
 
-    return N;
+    return weights;
   }
 
-  private int[][] calculateWight(int[][] gx, int[][] gy) {
-    int height = gx.length;
-    int width = gx[0].length;
-
-    int[][] d = new int[height][width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        d[i][j] = (int) Math.sqrt(gx[i][j] * gx[i][j] + gy[i][j] * gy[i][j]);
-      }
-    }
-
-    return d;
+  private static int clamp(int value, int min, int max) {
+    return value < min ? min : (value > max ? max : value);
   }
-
 }
@@ -0,0 +1,18 @@
+package canny_filter;
+
+/**
+ * Smoothing applied before gradients are computed.
+ */
+public enum BlurMode {
+
+  /**
+   * Separable Gaussian blur, see {@link Gaussian}.
+   */
+  GAUSSIAN,
+
+  /**
+   * Edge preserving weighted average, see {@link Adaptive}. Better on noisy footage, a few times slower than
+   * {@link #GAUSSIAN}.
+   */
+  ADAPTIVE
+}
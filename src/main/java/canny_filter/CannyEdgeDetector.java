@@ -1,135 +1,454 @@
 package canny_filter;
 
+import image_plane.BitPlane;
+import image_plane.BytePlane;
+import image_plane.FloatPlane;
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.ImageIO;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import utils.ImageUtils;
+import utils.RowStrips;
 
 @Slf4j
 public class CannyEdgeDetector {
 
   private final static double PI_RAD = 180 / Math.PI;
 
-  private static final int STRONG_PIXEL = 255;
-  private static final int WEAK_PIXEL = 25;
-  private static final int NON_RELEVANT_PIXEL = 0;
+  //Direction bins of the gradient, named by the angle of atan2(gY, gX)
+  private static final int DIRECTION_0 = 0;
+  private static final int DIRECTION_45 = 1;
+  private static final int DIRECTION_90 = 2;
+  private static final int DIRECTION_135 = 3;
+
+  //tan(22.5) and tan(67.5) in 40 bit fixed point for the integer slope tests of the fast gradient mode. Fewer bits
+  //put gradients of a few hundred close to the bin borders into the wrong bin, 40 bits match atan2 on the whole
+  //short range and the products still fit into a long
+  private static final long TAN_22_5 = 455_432_628_212L;
+  private static final long TAN_67_5 = 2_654_455_883_764L;
+  private static final int FIXED_SHIFT = 40;
+
+  private static final byte STRONG_PIXEL = (byte) 255;
+  private static final byte WEAK_PIXEL = 25;
+  private static final byte NON_RELEVANT_PIXEL = 0;
+
+  //Container of detections without intermediate results, all of its save methods are no-ops
+  private static final ResultsContainer NO_RESULTS = ResultsContainer.builder().build();
 
   @Setter
   private Parameters parameters = Parameters.builder().build();
 
-  private int stDev;       //Standard deviation in magnitude of image's pixels
-  private int mean;        //Mean of magnitude in image's pixels
+  private final Gaussian gaussian = new Gaussian();
+  private final Adaptive adaptive = new Adaptive();
+  private final Sobel sobel = new Sobel();
+
+  //One set of working planes per thread, so a single detector can be shared between workers
+  private final ThreadLocal<EdgeDetectionContext> contexts = ThreadLocal.withInitial(EdgeDetectionContext::new);
 
+  private ForkJoinPool pool;
+
+  /**
+   * Detects edges on the given image. Everything that changes from frame to frame lives in an
+   * {@link EdgeDetectionContext}, so this method is safe to call from several threads at once. With
+   * {@link Parameters#isReuseBuffers()} the context of the calling thread is reused between frames.
+   *
+   * <p>With {@link Parameters#getParallelism()} above one every stage up to thresholding is split into horizontal
+   * strips running on a fork/join pool. Stages are separated by a barrier, so a strip reads the halo rows its kernel
+   * needs (Gaussian kernel radius, 5x5 Sobel, 3x3 suppression window) from the complete output of the previous stage
+   * and the result is identical to the sequential one. Hysteresis tracks edges over the whole frame afterwards, which
+   * resolves edges crossing strip borders.
+   *
+   * <p>With {@link Parameters#isIncremental()} the new frame is compared with the cached one block by block and the
+   * stages up to thresholding are recomputed only around the changed blocks, see {@link #detectChangedRegions}.
+   */
   public ResultsContainer detectEdges(BufferedImage source) {
     ResultsContainer resultsContainer = ResultsContainer
         .builder()
         .intermediateResultsEnabled(parameters.isEnableIntermediateResults())
         .build();
 
-    Gaussian gaussian = new Gaussian();
-    int[][] blurredImage = gaussian.blurImage(source,
-        parameters.getGaussianRadius(), parameters.getGaussianIntensity());
+    BytePlane result = detect(source, resultsContainer);
+
+    resultsContainer.saveIntermediateResult(result);
+    resultsContainer.saveDefaultValue(result);
+
+    return resultsContainer;
+  }
+
+  /**
+   * Detects edges like {@link #detectEdges(BufferedImage)} without collecting any results and packs them into
+   * {@code edges}. With reused buffers and a reused {@code edges} plane nothing is allocated per frame.
+   *
+   * @param edges plane to pack the edges into, reused when it has the size of the result, may be {@code null}
+   * @return {@code edges} or a new plane when it did not fit
+   */
+  public BitPlane detectEdges(BufferedImage source, BitPlane edges) {
+    BytePlane result = detect(source, NO_RESULTS);
+
+    if (edges == null || !edges.hasSameSize(result)) {
+      edges = new BitPlane(result.getWidth(), result.getHeight());
+    }
+    edges.pack(result);
+
+    return edges;
+  }
+
+  private BytePlane detect(BufferedImage source, ResultsContainer resultsContainer) {
+    EdgeDetectionContext context = parameters.isReuseBuffers() ? contexts.get() : new EdgeDetectionContext();
+    context.prepare(source.getWidth(), source.getHeight());
+    ForkJoinPool stripPool = getPool();
+
+    IntPlane incoming = ImageUtils.rgbImageToGrayscalePlane(source, context.getIncomingGrayscale());
+    ChangedRegions changedRegions = findChangedRegions(context, incoming);
+
+    if (changedRegions != null) {
+      changedRegions.copy(incoming, context.getGrayscale());
+      detectChangedRegions(context, changedRegions);
+    } else {
+      context.swapGrayscale();
+      detectFullFrame(context, stripPool, resultsContainer);
+    }
+
+    context.markDetected(changedRegions == null);
+
+    BytePlane threshold = context.getThresholdClasses();
+    resultsContainer.saveIntermediateResult(threshold);
+
+    return hysteresis(threshold, context);
+  }
+
+  /**
+   * Finds the regions changed since the cached frame, or returns {@code null} when the frame has to be detected as a
+   * whole.
+   */
+  private ChangedRegions findChangedRegions(EdgeDetectionContext context, IntPlane incoming) {
+    if (!parameters.isIncremental() || !parameters.isReuseBuffers() || parameters.getBlurMode() != BlurMode.GAUSSIAN
+        || !context.canDetectIncrementally(parameters.getIncrementalRefreshInterval())) {
+      return null;
+    }
+
+    ChangedRegions changedRegions = context.getChangedRegions();
+    changedRegions.find(incoming, context.getGrayscale(), parameters.getIncrementalBlockSize(),
+        parameters.getIncrementalTolerance());
+
+    return changedRegions.changedFraction() > parameters.getIncrementalMaxChanged() ? null : changedRegions;
+  }
 
-//    Adaptive adaptive = new Adaptive();
-//    int[][] gs = ImageUtils.rgbImageToGrayscaleArrayOfPixels(source);
-//    int[][] blurredImage = adaptive.blurImage(gs);
+  /**
+   * Runs every stage up to thresholding over the whole grayscale frame of the context.
+   */
+  private void detectFullFrame(EdgeDetectionContext context, ForkJoinPool stripPool,
+      ResultsContainer resultsContainer) {
+    int radius = parameters.getGaussianRadius();
+    double intensity = parameters.getGaussianIntensity();
+    IntPlane grayscale = context.getGrayscale();
+    IntPlane blurredImage = context.getBlurred();
+    ShortPlane gX = context.getGradientX();
+    ShortPlane gY = context.getGradientY();
+
+    if (parameters.getBlurMode() == BlurMode.ADAPTIVE) {
+      //Gradient planes are free until the blurred image is convolved, so they hold the gradients of the source
+      ShortPlane adaptiveMagnitude = context.getAdaptiveMagnitude();
+      double h = parameters.getAdaptiveSmoothing();
+      forEachStrip(stripPool, adaptiveMagnitude.getHeight(),
+          (from, to) -> adaptive.gradientMagnitudeRows(grayscale, gX, gY, adaptiveMagnitude, from, to));
+      forEachStrip(stripPool, blurredImage.getHeight(),
+          (from, to) -> adaptive.averageRows(grayscale, adaptiveMagnitude, blurredImage, h, from, to));
+    } else {
+      IntPlane blurredHorizontally = context.getBlurredHorizontally();
+      forEachStrip(stripPool, grayscale.getHeight(),
+          (from, to) -> gaussian.horizontalRows(grayscale, blurredHorizontally, radius, intensity, from, to));
+      forEachStrip(stripPool, blurredImage.getHeight(),
+          (from, to) -> gaussian.verticalRows(blurredHorizontally, blurredImage, radius, intensity, from, to));
+    }
 
     resultsContainer.saveIntermediateResult(blurredImage);
 
-    Sobel sobel = new Sobel();
-    int[][] gX = sobel.process(blurredImage, Sobel.MASK_H);
-    int[][] gY = sobel.process(blurredImage, Sobel.MASK_V);
+    forEachStrip(stripPool, gX.getHeight(), (from, to) -> {
+      sobel.processRows(blurredImage, Sobel.MASK_H, gX, from, to);
+      sobel.processRows(blurredImage, Sobel.MASK_V, gY, from, to);
+    });
 
     resultsContainer.saveIntermediateResult(gX);
     resultsContainer.saveIntermediateResult(gY);
 
-    double[][] magnitude = nonMaximumSuppression(gX, gY);
+    FloatPlane magnitude = context.getMagnitude();
+    FloatPlane gradientMagnitude = context.getGradientMagnitude();
+    int gradientWidth = gradientMagnitude.getWidth();
+    forEachStrip(stripPool, gradientMagnitude.getHeight(),
+        (from, to) -> gradientMagnitude(gX, gY, gradientMagnitude, from, to, 0, gradientWidth));
+
+    //Statistics are gathered by suppression itself, frames in between statistics reuse the previous thresholds
+    boolean gatherStatistics = context.needsStatistics(parameters.getStatisticsInterval());
+    MagnitudeHistogram histogram = gatherStatistics && parameters.getThresholdMode() != ThresholdMode.MEAN_DEVIATION
+        ? MagnitudeHistogram.of(getMagnitudeNorm())
+        : null;
+    int suppressionRows = magnitude.getHeight() - 2;
+    int suppressionColumns = magnitude.getWidth() - 2;
+    int strips = stripCount(stripPool, suppressionRows);
+    int[][] stripHistograms = histogram != null ? context.prepareHistograms(strips) : null;
+    RowStrips.forEachStrip(stripPool, suppressionRows, strips, (strip, from, to) -> nonMaximumSuppression(
+        gX, context, gatherStatistics, histogram, stripHistograms == null ? null : stripHistograms[strip], from, to,
+        0, suppressionColumns));
+
+    if (gatherStatistics) {
+      updateThresholds(context, histogram, strips);
+    }
 
     resultsContainer.storeMagnitude(magnitude);
 
-    int[][] threshold = threshold(magnitude);
+    BytePlane threshold = context.getThresholdClasses();
+    int thresholdWidth = threshold.getWidth();
+    forEachStrip(stripPool, threshold.getHeight(),
+        (from, to) -> threshold(magnitude, context, from, to, 0, thresholdWidth));
+  }
 
-    resultsContainer.saveIntermediateResult(threshold);
+  /**
+   * Recomputes the stages up to thresholding around the changed regions only, the rest of every plane still holds the
+   * result of the previous frame. Each stage grows the region by the reach of its kernel before the next one runs, so
+   * every output that reads a changed pixel is recomputed. Statistics are not gathered, the frame reuses the
+   * thresholds of the last full detection.
+   */
+  private void detectChangedRegions(EdgeDetectionContext context, ChangedRegions regions) {
+    int radius = parameters.getGaussianRadius();
+    double intensity = parameters.getGaussianIntensity();
+    int reach = gaussian.kernelRadius(radius, intensity);
+    IntPlane grayscale = context.getGrayscale();
+    IntPlane blurredHorizontally = context.getBlurredHorizontally();
+    IntPlane blurredImage = context.getBlurred();
+    ShortPlane gX = context.getGradientX();
+    ShortPlane gY = context.getGradientY();
+    FloatPlane gradientMagnitude = context.getGradientMagnitude();
+    FloatPlane magnitude = context.getMagnitude();
+    BytePlane threshold = context.getThresholdClasses();
+    int width = grayscale.getWidth();
+    int height = grayscale.getHeight();
+    int count = regions.getCount();
+
+    for (int i = 0; i < count; i++) {
+      gaussian.horizontalRegion(grayscale, blurredHorizontally, radius, intensity, regions.fromY(i), regions.toY(i),
+          Math.max(0, regions.fromX(i) - reach), Math.min(width, regions.toX(i) + reach));
+    }
 
-    int[][] result = hysteresis(threshold);
+    for (int i = 0; i < count; i++) {
+      gaussian.verticalRegion(blurredHorizontally, blurredImage, radius, intensity,
+          Math.max(0, regions.fromY(i) - reach), Math.min(height, regions.toY(i) + reach),
+          Math.max(0, regions.fromX(i) - reach), Math.min(width, regions.toX(i) + reach));
+    }
 
-    resultsContainer.saveIntermediateResult(result);
-    resultsContainer.saveDefaultValue(result);
+    //Gradient pixel g reads blurred pixels [g, g + 4], magnitude pixel m reads gradient pixels [m, m + 2]
+    //and threshold pixel t reads magnitude pixel t + 1
+    for (int i = 0; i < count; i++) {
+      int fromY = Math.max(0, regions.fromY(i) - reach - 4);
+      int toY = Math.min(gX.getHeight(), regions.toY(i) + reach);
+      int fromX = Math.max(0, regions.fromX(i) - reach - 4);
+      int toX = Math.min(gX.getWidth(), regions.toX(i) + reach);
+      sobel.processRegion(blurredImage, Sobel.MASK_H, gX, fromY, toY, fromX, toX);
+      sobel.processRegion(blurredImage, Sobel.MASK_V, gY, fromY, toY, fromX, toX);
+      gradientMagnitude(gX, gY, gradientMagnitude, fromY, toY, fromX, toX);
+    }
 
-    return resultsContainer;
+    for (int i = 0; i < count; i++) {
+      int fromY = Math.max(0, regions.fromY(i) - reach - 6);
+      int toY = Math.min(magnitude.getHeight() - 2, regions.toY(i) + reach);
+      int fromX = Math.max(0, regions.fromX(i) - reach - 6);
+      int toX = Math.min(magnitude.getWidth() - 2, regions.toX(i) + reach);
+      nonMaximumSuppression(gX, context, false, null, null, fromY, toY, fromX, toX);
+    }
+
+    for (int i = 0; i < count; i++) {
+      int fromY = Math.max(0, regions.fromY(i) - reach - 7);
+      int toY = Math.min(threshold.getHeight(), regions.toY(i) + reach - 1);
+      int fromX = Math.max(0, regions.fromX(i) - reach - 7);
+      int toX = Math.min(threshold.getWidth(), regions.toX(i) + reach - 1);
+      threshold(magnitude, context, fromY, toY, fromX, toX);
+    }
   }
 
+  /**
+   * Pool running the strips of a frame when {@link Parameters#getParallelism()} is above one, otherwise {@code null}.
+   */
+  public synchronized ForkJoinPool getPool() {
+    int parallelism = parameters.getParallelism();
+    if (parallelism <= 1) {
+      return null;
+    }
 
-  private double[][] nonMaximumSuppression(int[][] gX, int[][] gY) {
-    int height = gX.length;
-    int width = gX[0].length;
-    double pixelTotal = height * width;
-    double[][] mag = new double[height][width];
+    if (pool == null || pool.getParallelism() != parallelism) {
+      if (pool != null) {
+        pool.shutdown();
+      }
+      pool = new ForkJoinPool(parallelism);
+    }
 
-    double sum = 0;
-    double deviation = 0;
-
-    for (int x = 1; x < height - 1; x++) {
-      for (int y = 1; y < width - 1; y++) {
-        double gradMag = getMagnitude(gX[x][y], gY[x][y]);
-
-        switch (getDirection(gX[x][y], gY[x][y])) {
-          case 0:
-            double magS = getMagnitude(gX[x][y - 1], gY[x][y - 1]);
-            double magN = getMagnitude(gX[x][y + 1], gY[x][y + 1]);
-            mag[x - 1][y - 1] = defineMagnitude(() -> gradMag < magS && gradMag < magN, gradMag);
-            break;
-          case 45:
-            double magNE = getMagnitude(gX[x - 1][y + 1], gY[x - 1][y + 1]);
-            double magSW = getMagnitude(gX[x + 1][y - 1], gY[x + 1][y - 1]);
-            mag[x - 1][y - 1] = defineMagnitude(() -> gradMag < magNE && gradMag < magSW, gradMag);
-            break;
-          case 90:
-            double magE = getMagnitude(gX[x - 1][y], gY[x - 1][y]);
-            double magW = getMagnitude(gX[x + 1][y - 1], gY[x + 1][y - 1]);
-            mag[x - 1][y - 1] = defineMagnitude(() -> gradMag < magE && gradMag < magW, gradMag);
-            break;
-          case 135:
-            double magSE = getMagnitude(gX[x - 1][y - 1], gY[x - 1][y - 1]);
-            double magNW = getMagnitude(gX[x + 1][y + 1], gY[x + 1][y + 1]);
-            mag[x - 1][y - 1] = defineMagnitude(() -> gradMag < magSE && gradMag < magNW, gradMag);
-            break;
-        }
+    return pool;
+  }
 
-        sum += mag[x - 1][y - 1];
-      }
+  private void forEachStrip(ForkJoinPool stripPool, int rows, RowStrips.RowRangeAction action) {
+    RowStrips.forEachStrip(stripPool, rows, stripCount(stripPool, rows), action);
+  }
+
+  private static int stripCount(ForkJoinPool stripPool, int rows) {
+    return stripPool == null ? 1 : RowStrips.stripCount(rows, stripPool.getParallelism());
+  }
+
+  private MagnitudeNorm getMagnitudeNorm() {
+    return parameters.getGradientMode() == GradientMode.EXACT ? MagnitudeNorm.EUCLIDEAN : parameters.getMagnitudeNorm();
+  }
+
+  /**
+   * Chooses the high and low thresholds of the frame from the statistics gathered during suppression.
+   */
+  private void updateThresholds(EdgeDetectionContext context, MagnitudeHistogram histogram, int strips) {
+    double highThreshold;
+
+    switch (parameters.getThresholdMode()) {
+      case PERCENTILE:
+        highThreshold = histogram.percentile(context.mergeHistograms(strips), parameters.getHighPercentile());
+        break;
+      case OTSU:
+        highThreshold = histogram.otsu(context.mergeHistograms(strips));
+        break;
+      default:
+        double pixelTotal = context.getMagnitude().size();
+        double sum = sumRows(context.getRowSums());
+        double squareSum = sumRows(context.getRowSquareSums());
+        int mean = (int) Math.round(sum / pixelTotal);      //Mean of magnitude in image's pixels
+        //Sum of (mag - mean)^2 expanded, so no second pass over the magnitudes is needed
+        double deviation = squareSum - 2.0 * mean * sum + pixelTotal * mean * mean;
+        int stDev = (int) Math.sqrt(Math.max(0, deviation) / pixelTotal);   //Standard deviation of magnitude
+        highThreshold = mean + (parameters.getNumberDeviations() * stDev);
+        break;
     }
 
-    mean = (int) Math.round(sum / pixelTotal);
+    context.updateThresholds(highThreshold, highThreshold * parameters.getFract(), parameters.getThresholdSmoothing());
+  }
 
-    //Get variance
-    for (int r = 0; r < height; r++) {
-      for (int c = 0; c < width; c++) {
-        double diff = mag[r][c] - mean;
+  //Rows are summed in order, so the result does not depend on how the rows were split into strips
+  private static double sumRows(double[] rowSums) {
+    double sum = 0;
 
-        deviation += (diff * diff);
+    for (double rowSum : rowSums) {
+      sum += rowSum;
+    }
+
+    return sum;
+  }
+
+  /**
+   * Computes the gradient magnitude of the rows {@code [fromRow, toRow)} and columns {@code [fromCol, toCol)} once, so
+   * that suppression reads it for a pixel and its neighbours instead of recomputing it.
+   */
+  private void gradientMagnitude(ShortPlane gXPlane, ShortPlane gYPlane, FloatPlane magPlane, int fromRow,
+      int toRow, int fromCol, int toCol) {
+    int stride = gXPlane.getStride();
+    short[] gX = gXPlane.getData();
+    short[] gY = gYPlane.getData();
+    float[] mag = magPlane.getData();
+    MagnitudeNorm norm = getMagnitudeNorm();
+
+    for (int r = fromRow; r < toRow; r++) {
+      int from = r * stride + fromCol;
+      int to = r * stride + toCol;
+
+      switch (norm) {
+        case EUCLIDEAN:
+          for (int p = from; p < to; p++) {
+            mag[p] = (float) getMagnitude(gX[p], gY[p]);
+          }
+          break;
+        case L1:
+          for (int p = from; p < to; p++) {
+            mag[p] = Math.abs(gX[p]) + Math.abs(gY[p]);
+          }
+          break;
+        case SQUARED:
+          for (int p = from; p < to; p++) {
+            mag[p] = gX[p] * gX[p] + gY[p] * gY[p];
+          }
+          break;
       }
     }
+  }
 
-    stDev = (int) Math.sqrt(deviation / pixelTotal);
+  /**
+   * Suppresses non maximum gradients for the magnitude rows {@code [fromRow, toRow)} and columns
+   * {@code [fromCol, toCol)}. A pixel is kept only when it is not smaller than both of its neighbours along the
+   * gradient direction. With {@code gatherStatistics} the sum and the sum of squares of every written magnitude row are
+   * stored into the context and, when a histogram is given, non zero magnitudes are counted into
+   * {@code stripHistogram}.
+   */
+  private void nonMaximumSuppression(ShortPlane gXPlane, EdgeDetectionContext context, boolean gatherStatistics,
+      MagnitudeHistogram histogram, int[] stripHistogram, int fromRow, int toRow, int fromCol, int toCol) {
+    int stride = gXPlane.getStride();
+    short[] gX = gXPlane.getData();
+    short[] gY = context.getGradientY().getData();
+    float[] gradMag = context.getGradientMagnitude().getData();
+    FloatPlane magPlane = context.getMagnitude();
+    float[] mag = magPlane.getData();
+    int magStride = magPlane.getStride();
+    double[] rowSums = context.getRowSums();
+    double[] rowSquareSums = context.getRowSquareSums();
+    boolean exact = parameters.getGradientMode() == GradientMode.EXACT;
+
+    int[] neighbourOffsets = context.getNeighbourOffsets();
+
+    for (int x = fromRow + 1; x < toRow + 1; x++) {
+      double sum = 0;
+      double squareSum = 0;
+
+      for (int y = fromCol + 1; y < toCol + 1; y++) {
+        int p = x * stride + y;
+        int out = (x - 1) * magStride + y - 1;
+        int direction = exact ? getDirection(gX[p], gY[p]) : getFastDirection(gX[p], gY[p]);
+        int offset = neighbourOffsets[direction];
+        float current = gradMag[p];
+        float value = current >= gradMag[p - offset] && current >= gradMag[p + offset] ? current : 0;
+
+        mag[out] = value;
+
+        if (gatherStatistics && value != 0) {
+          sum += value;
+          squareSum += (double) value * value;
+
+          if (stripHistogram != null) {
+            stripHistogram[histogram.bin(value)]++;
+          }
+        }
+      }
 
-    return mag;
+      if (gatherStatistics) {
+        rowSums[x - 1] = sum;
+        rowSquareSums[x - 1] = squareSum;
+      }
+    }
   }
 
-  private double defineMagnitude(Supplier<Boolean> gradCheck, double gradMag) {
-    return gradCheck.get() ? 0 : gradMag;
+  /**
+   * Offsets of the neighbours compared along each direction bin in a gradient plane with the given stride.
+   */
+  static int[] neighbourOffsets(int stride) {
+    //gX is the response of MASK_H, so it grows along rows, gY is the response of MASK_V and grows along columns
+    int[] neighbourOffsets = new int[4];
+    neighbourOffsets[DIRECTION_0] = stride;
+    neighbourOffsets[DIRECTION_45] = stride + 1;
+    neighbourOffsets[DIRECTION_90] = 1;
+    neighbourOffsets[DIRECTION_135] = stride - 1;
+
+    return neighbourOffsets;
   }
 
   private double getMagnitude(int x, int y) {
     return Math.hypot(x, y);
   }
 
-  private int getDirection(int x, int y) {
+  static int getDirection(int x, int y) {
     double angle = Math.atan2(y, x) * PI_RAD;    //Convert radians to degrees
 
     //Check for negative angles
@@ -140,78 +459,141 @@ public class CannyEdgeDetector {
     //Each pixels ACTUAL angle is examined and placed in 1 of four groups (for the four searched 45-degree neighbors)
     //Reorder this for optimization
     if (angle <= 22.5 || (angle >= 157.5 && angle <= 202.5) || angle >= 337.5) {
-      return 0;      //Check left and right neighbors
+      return DIRECTION_0;      //Check top and bottom neighbors
     } else if ((angle >= 22.5 && angle <= 67.5) || (angle >= 202.5 && angle <= 247.5)) {
-      return 45;     //Check diagonal (upper right and lower left) neighbors
+      return DIRECTION_45;     //Check diagonal (upper left and lower right) neighbors
     } else if ((angle >= 67.5 && angle <= 112.5) || (angle >= 247.5 && angle <= 292.5)) {
-      return 90;     //Check top and bottom neighbors
+      return DIRECTION_90;     //Check left and right neighbors
     } else {
-      return 135;    //Check diagonal (upper left and lower right) neighbors
+      return DIRECTION_135;    //Check diagonal (upper right and lower left) neighbors
     }
   }
 
-  private int[][] threshold(double[][] mag) {
-    int height = mag.length - 1;
-    int width = mag[0].length - 1;
-    int[][] threshold = new int[height - 1][width - 1];
+  /**
+   * Same bins as {@link #getDirection(int, int)} without trigonometry: the slope |y| / |x| is compared with tan(22.5)
+   * and tan(67.5) in fixed point, the signs decide between the two diagonals.
+   */
+  static int getFastDirection(int x, int y) {
+    int absX = Math.abs(x);
+    int absY = Math.abs(y);
 
-    double highThreshold = mean + (parameters.getNumberDeviations() * stDev);
-    double lowThreshold = highThreshold * parameters.getFract();
+    long scaledY = (long) absY << FIXED_SHIFT;
 
-    for (int i = 1; i < height; i++) {
-      for (int j = 1; j < width; j++) {
-        double magnitude = mag[i][j];
+    if (scaledY <= absX * TAN_22_5) {
+      return DIRECTION_0;
+    } else if (scaledY >= absX * TAN_67_5) {
+      return DIRECTION_90;
+    } else {
+      return (x ^ y) >= 0 ? DIRECTION_45 : DIRECTION_135;
+    }
+  }
 
-        if (magnitude >= highThreshold) {
-          threshold[i - 1][j - 1] = STRONG_PIXEL;
-        } else if (magnitude < lowThreshold) {
-          threshold[i - 1][j - 1] = NON_RELEVANT_PIXEL;
-        } else {    //This could be separate method or lambda
-          boolean connected = false;
-
-          for (int i1 = -1; i1 < 2; i1++) {
-            for (int j1 = -1; j1 < 2; j1++) {
-              if (mag[i + i1][j + j1] >= highThreshold) {
-                connected = true;
-                break;
-              }
-            }
-          }
+  /**
+   * Classifies the pixels of the rows {@code [fromRow, toRow)} and columns {@code [fromCol, toCol)} as strong, weak or
+   * non relevant.
+   */
+  private void threshold(FloatPlane magPlane, EdgeDetectionContext context, int fromRow, int toRow, int fromCol,
+      int toCol) {
+    int magStride = magPlane.getStride();
+    float[] mag = magPlane.getData();
+    BytePlane thresholdPlane = context.getThresholdClasses();
+    byte[] threshold = thresholdPlane.getData();
+    int thresholdStride = thresholdPlane.getStride();
+
+    double highThreshold = context.getHighThreshold();
+    double lowThreshold = context.getLowThreshold();
+
+    for (int i = fromRow + 1; i < toRow + 1; i++) {
+      for (int j = fromCol + 1; j < toCol + 1; j++) {
+        int p = i * magStride + j;
+        int out = (i - 1) * thresholdStride + j - 1;
+        double magnitude = mag[p];
 
-          threshold[i - 1][j - 1] = connected ? WEAK_PIXEL : NON_RELEVANT_PIXEL;
+        if (magnitude >= highThreshold) {
+          threshold[out] = STRONG_PIXEL;
+        } else if (magnitude >= lowThreshold) {
+          threshold[out] = WEAK_PIXEL;
+        } else {
+          threshold[out] = NON_RELEVANT_PIXEL;
         }
       }
     }
-
-    return threshold;
   }
 
-  private int[][] hysteresis(int[][] img) {
-    int height = img.length - 1;
-    int width = img[0].length - 1;
+  /**
+   * Edge tracking by hysteresis: every weak pixel 8-connected through other edge pixels to a strong one becomes strong,
+   * all other weak pixels are dropped. Edge pixels are flooded from the strong seeds with a primitive stack and a
+   * bitset of visited pixels, so every edge pixel is pushed at most once. The classes are copied into the edges plane
+   * first, so they stay intact for the next incremental frame.
+   */
+  private BytePlane hysteresis(BytePlane classes, EdgeDetectionContext context) {
+    BytePlane imgPlane = context.getEdges();
+    imgPlane.copyFrom(classes);
+    int height = imgPlane.getHeight();
+    int width = imgPlane.getWidth();
+    int stride = imgPlane.getStride();
+    byte[] img = imgPlane.getData();
+    long[] visited = context.clearVisited();
+    int[] stack = context.getHysteresisStack();
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int seed = y * stride + x;
+
+        if (img[seed] != STRONG_PIXEL || isVisited(visited, seed)) {
+          continue;
+        }
+
+        markVisited(visited, seed);
+        stack[0] = seed;
+        int size = 1;
+
+        while (size > 0) {
+          int p = stack[--size];
+          int py = p / stride;
+          int px = p - py * stride;
+          int fromY = Math.max(py - 1, 0);
+          int toY = Math.min(py + 1, height - 1);
+          int fromX = Math.max(px - 1, 0);
+          int toX = Math.min(px + 1, width - 1);
+
+          for (int ny = fromY; ny <= toY; ny++) {
+            for (int nx = fromX; nx <= toX; nx++) {
+              int n = ny * stride + nx;
+
+              if (img[n] == NON_RELEVANT_PIXEL || isVisited(visited, n)) {
+                continue;
+              }
 
-    for (int i = 1; i < height - 1; i++) {
-      for (int j = 1; j < width - 1; j++) {
-        if (img[i][j] == WEAK_PIXEL) {
-          boolean n = img[i + 1][j] == STRONG_PIXEL;
-          boolean nw = img[i + 1][j + 1] == STRONG_PIXEL;
-          boolean w = img[i][j + 1] == STRONG_PIXEL;
-          boolean sw = img[i + 1][j - 1] == STRONG_PIXEL;
-          boolean s = img[i][j - 1] == STRONG_PIXEL;
-          boolean se = img[i - 1][j - 1] == STRONG_PIXEL;
-          boolean e = img[i][j - 1] == STRONG_PIXEL;
-          boolean ne = img[i - 1][j + 1] == STRONG_PIXEL;
+              markVisited(visited, n);
+              img[n] = STRONG_PIXEL;
 
-          if (n || nw || w || sw || s || se || e || ne) {
-            img[i][j] = STRONG_PIXEL;
-          } else {
-            img[i][j] = NON_RELEVANT_PIXEL;
+              if (size == stack.length) {
+                stack = context.growHysteresisStack();
+              }
+              stack[size++] = n;
+            }
           }
         }
       }
     }
 
-    return img;
+    //Weak pixels not reached from any strong one are not edges
+    for (int i = 0; i < img.length; i++) {
+      if (img[i] == WEAK_PIXEL) {
+        img[i] = NON_RELEVANT_PIXEL;
+      }
+    }
+
+    return imgPlane;
+  }
+
+  private static boolean isVisited(long[] visited, int index) {
+    return (visited[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private static void markVisited(long[] visited, int index) {
+    visited[index >>> 6] |= 1L << index;
   }
 
   /**
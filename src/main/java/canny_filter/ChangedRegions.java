@@ -0,0 +1,123 @@
+package canny_filter;
+
+import image_plane.IntPlane;
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Rectangles of a frame whose pixels changed since the cached frame. The frame is split into square blocks, a block
+ * changed when any of its pixels differs by more than the tolerance, and changed blocks next to each other in one row
+ * of blocks are merged into one rectangle.
+ */
+class ChangedRegions {
+
+  private int[] rectangles = new int[64];   //fromX, fromY, toX, toY of every region
+  @Getter
+  private int count;
+  @Getter
+  private int changedBlocks;
+  @Getter
+  private int totalBlocks;
+
+  void find(IntPlane current, IntPlane cached, int blockSize, int tolerance) {
+    int width = current.getWidth();
+    int height = current.getHeight();
+    int blocksX = (width + blockSize - 1) / blockSize;
+    int blocksY = (height + blockSize - 1) / blockSize;
+
+    count = 0;
+    changedBlocks = 0;
+    totalBlocks = blocksX * blocksY;
+
+    for (int by = 0; by < blocksY; by++) {
+      int fromY = by * blockSize;
+      int toY = Math.min(height, fromY + blockSize);
+      int runStart = -1;
+
+      for (int bx = 0; bx <= blocksX; bx++) {
+        boolean changed = bx < blocksX && blockChanged(current, cached, bx * blockSize,
+            Math.min(width, (bx + 1) * blockSize), fromY, toY, tolerance);
+
+        if (changed) {
+          changedBlocks++;
+          if (runStart < 0) {
+            runStart = bx;
+          }
+        } else if (runStart >= 0) {
+          add(runStart * blockSize, fromY, Math.min(width, bx * blockSize), toY);
+          runStart = -1;
+        }
+      }
+    }
+  }
+
+  double changedFraction() {
+    return totalBlocks == 0 ? 0 : (double) changedBlocks / totalBlocks;
+  }
+
+  int fromX(int region) {
+    return rectangles[region * 4];
+  }
+
+  int fromY(int region) {
+    return rectangles[region * 4 + 1];
+  }
+
+  int toX(int region) {
+    return rectangles[region * 4 + 2];
+  }
+
+  int toY(int region) {
+    return rectangles[region * 4 + 3];
+  }
+
+  /**
+   * Copies the pixels of all regions from {@code source} to {@code target}.
+   */
+  void copy(IntPlane source, IntPlane target) {
+    int[] from = source.getData();
+    int[] to = target.getData();
+
+    for (int region = 0; region < count; region++) {
+      int length = toX(region) - fromX(region);
+
+      for (int y = fromY(region); y < toY(region); y++) {
+        System.arraycopy(from, source.index(fromX(region), y), to, target.index(fromX(region), y), length);
+      }
+    }
+  }
+
+  private void add(int fromX, int fromY, int toX, int toY) {
+    if ((count + 1) * 4 > rectangles.length) {
+      rectangles = Arrays.copyOf(rectangles, rectangles.length * 2);
+    }
+
+    int offset = count * 4;
+    rectangles[offset] = fromX;
+    rectangles[offset + 1] = fromY;
+    rectangles[offset + 2] = toX;
+    rectangles[offset + 3] = toY;
+    count++;
+  }
+
+  private static boolean blockChanged(IntPlane current, IntPlane cached, int fromX, int toX, int fromY, int toY,
+      int tolerance) {
+    int[] a = current.getData();
+    int[] b = cached.getData();
+
+    for (int y = fromY; y < toY; y++) {
+      int rowA = current.index(0, y);
+      int rowB = cached.index(0, y);
+
+      for (int x = fromX; x < toX; x++) {
+        int diff = a[rowA + x] - b[rowB + x];
+
+        if (diff > tolerance || diff < -tolerance) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+}
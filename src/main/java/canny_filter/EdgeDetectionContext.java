@@ -0,0 +1,186 @@
+package canny_filter;
+
+import image_plane.BytePlane;
+import image_plane.FloatPlane;
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Working planes and per-frame statistics of one edge detection run. A context is allocated once for a frame size and
+ * reused for every following frame of the same size, so a detector keeps one context per worker thread and does not
+ * produce garbage in steady state.
+ */
+@Getter
+class EdgeDetectionContext {
+
+  private int sourceWidth;
+  private int sourceHeight;
+
+  private IntPlane grayscale;
+  private IntPlane incomingGrayscale;     //Grayscale of the new frame, compared with the cached one
+  private IntPlane blurredHorizontally;
+  private IntPlane blurred;
+  private ShortPlane gradientX;
+  private ShortPlane gradientY;
+  private ShortPlane adaptiveMagnitude;   //Only allocated for BlurMode.ADAPTIVE
+  private FloatPlane gradientMagnitude;
+  private FloatPlane magnitude;
+  private BytePlane thresholdClasses;    //Strong, weak or non relevant class of every pixel before hysteresis
+  private BytePlane edges;
+  private int[] neighbourOffsets;   //Offsets of the suppression neighbours per direction bin, they depend on the stride
+  private double[] rowSums;         //Per magnitude row sums of suppressed magnitudes
+  private double[] rowSquareSums;   //Per magnitude row sums of squared suppressed magnitudes
+  private int[][] stripHistograms = new int[0][];
+  private final int[] histogram = new int[MagnitudeHistogram.BINS];
+  private long[] visited;                   //Bitset of pixels already tracked by hysteresis
+  private int[] hysteresisStack = new int[1024];
+  private final ChangedRegions changedRegions = new ChangedRegions();
+
+  //All planes hold the results of the previous frame, so an incremental frame may recompute only changed regions
+  private boolean cacheValid;
+  private int framesSinceFullDetection;
+
+  //Thresholds survive between frames, so they can be smoothed and reused when statistics are skipped
+  private boolean thresholdsKnown;
+  private int framesSinceStatistics;
+  private double highThreshold;
+  private double lowThreshold;
+
+  /**
+   * Makes sure that all planes fit a source image of the given size, reallocating them only when the size changed
+   * since the previous frame.
+   */
+  void prepare(int width, int height) {
+    if (grayscale != null && sourceWidth == width && sourceHeight == height) {
+      return;
+    }
+
+    int gradientWidth = width - 4;
+    int gradientHeight = height - 4;
+
+    grayscale = new IntPlane(width, height);
+    incomingGrayscale = new IntPlane(width, height);
+    blurredHorizontally = new IntPlane(width, height);
+    blurred = new IntPlane(width, height);
+    gradientX = new ShortPlane(gradientWidth, gradientHeight);
+    gradientY = new ShortPlane(gradientWidth, gradientHeight);
+    adaptiveMagnitude = null;
+    gradientMagnitude = new FloatPlane(gradientWidth, gradientHeight);
+    magnitude = new FloatPlane(gradientWidth, gradientHeight);
+    thresholdClasses = new BytePlane(gradientWidth - 2, gradientHeight - 2);
+    edges = new BytePlane(gradientWidth - 2, gradientHeight - 2);
+    neighbourOffsets = CannyEdgeDetector.neighbourOffsets(gradientX.getStride());
+    rowSums = new double[gradientHeight];
+    rowSquareSums = new double[gradientHeight];
+    visited = new long[(edges.getStride() * edges.getHeight() + 63) >>> 6];
+    thresholdsKnown = false;
+    cacheValid = false;
+
+    sourceWidth = width;
+    sourceHeight = height;
+  }
+
+  /**
+   * Tells whether magnitude statistics have to be gathered for the current frame. Without known thresholds they are
+   * always gathered, otherwise only every {@code interval}-th frame.
+   */
+  boolean needsStatistics(int interval) {
+    return !thresholdsKnown || ++framesSinceStatistics >= interval;
+  }
+
+  /**
+   * Stores the thresholds computed for the current frame. With a positive {@code smoothing} they are blended with the
+   * previous thresholds by exponential smoothing.
+   */
+  void updateThresholds(double high, double low, double smoothing) {
+    if (thresholdsKnown && smoothing > 0) {
+      high = smoothing * highThreshold + (1 - smoothing) * high;
+      low = smoothing * lowThreshold + (1 - smoothing) * low;
+    }
+
+    highThreshold = high;
+    lowThreshold = low;
+    thresholdsKnown = true;
+    framesSinceStatistics = 0;
+  }
+
+  /**
+   * Tells whether the current frame may be detected incrementally: the planes must hold a previous frame and fewer
+   * than {@code refreshInterval} frames may have passed since the last full detection.
+   */
+  boolean canDetectIncrementally(int refreshInterval) {
+    return cacheValid && thresholdsKnown && framesSinceFullDetection + 1 < refreshInterval;
+  }
+
+  void markDetected(boolean full) {
+    if (full) {
+      cacheValid = true;
+      framesSinceFullDetection = 0;
+    } else {
+      framesSinceFullDetection++;
+    }
+  }
+
+  /**
+   * Makes the incoming grayscale the cached one. The previous cached plane is reused for the next incoming frame.
+   */
+  void swapGrayscale() {
+    IntPlane previous = grayscale;
+    grayscale = incomingGrayscale;
+    incomingGrayscale = previous;
+  }
+
+  ShortPlane getAdaptiveMagnitude() {
+    if (adaptiveMagnitude == null) {
+      adaptiveMagnitude = new ShortPlane(gradientX.getWidth(), gradientX.getHeight());
+    }
+
+    return adaptiveMagnitude;
+  }
+
+  long[] clearVisited() {
+    Arrays.fill(visited, 0);
+
+    return visited;
+  }
+
+  /**
+   * Doubles the hysteresis stack keeping its content. The grown stack is kept for the following frames.
+   */
+  int[] growHysteresisStack() {
+    hysteresisStack = Arrays.copyOf(hysteresisStack, hysteresisStack.length * 2);
+
+    return hysteresisStack;
+  }
+
+  /**
+   * Returns cleared histograms for {@code strips} strips, reallocating only when there are more strips than before.
+   */
+  int[][] prepareHistograms(int strips) {
+    if (stripHistograms.length < strips) {
+      stripHistograms = new int[strips][MagnitudeHistogram.BINS];
+    }
+
+    for (int i = 0; i < strips; i++) {
+      Arrays.fill(stripHistograms[i], 0);
+    }
+
+    return stripHistograms;
+  }
+
+  int[] mergeHistograms(int strips) {
+    Arrays.fill(histogram, 0);
+
+    for (int i = 0; i < strips; i++) {
+      int[] stripHistogram = stripHistograms[i];
+
+      for (int bin = 0; bin < histogram.length; bin++) {
+        histogram[bin] += stripHistogram[bin];
+      }
+    }
+
+    return histogram;
+  }
+}
@@ -1,75 +1,117 @@
 package canny_filter;
 
+import image_plane.IntPlane;
 import java.awt.image.BufferedImage;
+import pixel_kernels.KernelBackends;
 import utils.ImageUtils;
 
+/**
+ * Separable Gaussian blur with fixed-point kernels from {@link GaussianKernel}. The image is convolved horizontally
+ * into an intermediate plane and then vertically into the output by the best available
+ * {@link pixel_kernels.PixelKernels} backend. Pixels outside of the image are replaced by the
+ * nearest border pixel, so the output has the size of the input.
+ */
 public class Gaussian {
 
-  private static final double SQRT2PI = Math.sqrt(2 * Math.PI);
+  //Kernel of the last requested parameters, so frames with fixed parameters skip the cache lookup and its key
+  private volatile GaussianKernel lastKernel;
 
-  public int[][] blurImage(BufferedImage img, int radius, double intensity) {
-    int[][] gs = ImageUtils.rgbImageToGrayscaleArrayOfPixels(img);
+  public IntPlane blurImage(BufferedImage img, int radius, double intensity) {
+    IntPlane gs = ImageUtils.rgbImageToGrayscalePlane(img, null);
 
-    return blur(gs, radius, intensity);
+    return blur(gs, null, null, radius, intensity);
   }
 
   /**
-   * Send this method an int[][][] RGB array, an int radius, and a double intensity to blur the image with a Gaussian
+   * Send this method a grayscale plane, an int radius, and a double intensity to blur the image with a Gaussian
    * filter of that radius and intensity.
    *
-   * @param raw       int[][][], an array of RGB values to be blurred
-   * @param radius    int, the radius of the Gaussian filter (filter width = 2 * r + 1)
-   * @param intensity double, the intensity of the Gaussian blur
-   * @return outRGB   int[][][], an array of RGB values from blurring input image with Gaussian filter
+   * @param raw        IntPlane, grayscale values to be blurred
+   * @param horizontal IntPlane for the horizontally blurred intermediate image, reused when it has the size of
+   *                   {@code raw}, may be {@code null}
+   * @param outGS      IntPlane to write the result into, reused when it has the size of {@code raw}, may be
+   *                   {@code null}
+   * @param radius     int, the radius of the Gaussian filter (filter width = 2 * r + 1)
+   * @param intensity  double, the intensity of the Gaussian blur
+   * @return outGS     IntPlane, grayscale values from blurring input image with Gaussian filter
    */
-  private int[][] blur(int[][] raw, int radius, double intensity) {
-    int height = raw.length;
-    int width = raw[0].length;
-    double norm = 0.;
-    //This also seems very costly, do it as little as possible
-    double invIntensSqrPi = 1 / (SQRT2PI * intensity);
-    double[] mask = new double[2 * radius + 1];
-    int[][] outGS = new int[height - 2 * radius][width - 2 * radius];
-
-    //Create Gaussian kernel
-    double intensSquared2 = 2 * intensity * intensity;
-    for (int x = 0; x < 2 * radius + 1; x++) {
-      double exp = Math.exp(-((x * x) / intensSquared2));
-
-      mask[x] = invIntensSqrPi * exp;
-      norm += mask[x];
+  public IntPlane blur(IntPlane raw, IntPlane horizontal, IntPlane outGS, int radius, double intensity) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
+
+    if (horizontal == null || !horizontal.hasSize(width, height)) {
+      horizontal = new IntPlane(width, height);
+    }
+    if (outGS == null || !outGS.hasSize(width, height)) {
+      outGS = new IntPlane(width, height);
     }
 
-    //Convolve image with kernel horizontally
-    for (int r = radius; r < height - radius; r++) {
-      for (int c = radius; c < width - radius; c++) {
-        double sum = 0.;
+    horizontalRows(raw, horizontal, radius, intensity, 0, height);
+    verticalRows(horizontal, outGS, radius, intensity, 0, height);
 
-        for (int mr = -radius; mr < radius + 1; mr++) {
-          sum += (mask[mr + radius] * raw[r][c + mr]);
-        }
+    return outGS;
+  }
 
-        //Normalize channel after blur
-        sum /= norm;
-        outGS[r - radius][c - radius] = (int) Math.round(sum);
-      }
-    }
+  /**
+   * Convolves the rows {@code [fromRow, toRow)} of {@code raw} with the kernel horizontally.
+   */
+  public void horizontalRows(IntPlane raw, IntPlane horizontal, int radius, double intensity, int fromRow,
+      int toRow) {
+    GaussianKernel kernel = kernel(radius, intensity);
 
-    //Convolve image with kernel vertically
-    for (int r = radius; r < height - radius; r++) {
-      for (int c = radius; c < width - radius; c++) {
-        double sum = 0.;
+    KernelBackends.best().gaussianHorizontalRows(raw, horizontal, kernel.getTaps(), GaussianKernel.SHIFT, fromRow,
+        toRow);
+  }
 
-        for (int mr = -radius; mr < radius + 1; mr++) {
-          sum += (mask[mr + radius] * raw[r + mr][c]);
-        }
+  /**
+   * Convolves the rows {@code [fromRow, toRow)} of the horizontally blurred plane with the kernel vertically.
+   */
+  public void verticalRows(IntPlane horizontal, IntPlane outGS, int radius, double intensity, int fromRow,
+      int toRow) {
+    GaussianKernel kernel = kernel(radius, intensity);
 
-        //Normalize channel after blur
-        sum /= norm;
-        outGS[r - radius][c - radius] = (int) Math.round(sum);
-      }
+    KernelBackends.best().gaussianVerticalRows(horizontal, outGS, kernel.getTaps(), GaussianKernel.SHIFT, fromRow,
+        toRow);
+  }
+
+  /**
+   * Region variant of {@link #horizontalRows(IntPlane, IntPlane, int, double, int, int)}, limited to the output columns
+   * {@code [fromCol, toCol)}.
+   */
+  public void horizontalRegion(IntPlane raw, IntPlane horizontal, int radius, double intensity, int fromRow,
+      int toRow, int fromCol, int toCol) {
+    GaussianKernel kernel = kernel(radius, intensity);
+
+    KernelBackends.best().gaussianHorizontalRegion(raw, horizontal, kernel.getTaps(), GaussianKernel.SHIFT, fromRow,
+        toRow, fromCol, toCol);
+  }
+
+  /**
+   * Region variant of {@link #verticalRows(IntPlane, IntPlane, int, double, int, int)}, limited to the output columns
+   * {@code [fromCol, toCol)}.
+   */
+  public void verticalRegion(IntPlane horizontal, IntPlane outGS, int radius, double intensity, int fromRow,
+      int toRow, int fromCol, int toCol) {
+    GaussianKernel kernel = kernel(radius, intensity);
+
+    KernelBackends.best().gaussianVerticalRegion(horizontal, outGS, kernel.getTaps(), GaussianKernel.SHIFT, fromRow,
+        toRow, fromCol, toCol);
+  }
+
+  /**
+   * Radius of the kernel actually applied, which may be smaller than {@code radius} when tail taps round to zero.
+   */
+  public int kernelRadius(int radius, double intensity) {
+    return kernel(radius, intensity).getRadius();
+  }
+
+  private GaussianKernel kernel(int radius, double intensity) {
+    GaussianKernel kernel = lastKernel;
+    if (kernel == null || !kernel.matches(radius, intensity)) {
+      kernel = GaussianKernel.of(radius, intensity);
+      lastKernel = kernel;
     }
 
-    return outGS;
+    return kernel;
   }
 }
@@ -0,0 +1,66 @@
+package canny_filter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Centered 1D Gaussian kernel with integer fixed-point taps. Taps always sum to exactly {@code 1 << SHIFT}, so a
+ * convolution is normalized with a single rounding shift. Tail taps that round to zero are dropped, so the effective
+ * {@link #getRadius()} may be smaller than the requested one.
+ */
+@Getter
+class GaussianKernel {
+
+  static final int SHIFT = 16;
+
+  private static final Map<Pair<Integer, Double>, GaussianKernel> CACHE = new ConcurrentHashMap<>();
+
+  private final int requestedRadius;
+  private final double intensity;
+  private final int radius;
+  private final int[] taps;
+
+  private GaussianKernel(int radius, double intensity) {
+    this.requestedRadius = radius;
+    this.intensity = intensity;
+
+    double[] weights = new double[2 * radius + 1];
+    double intensSquared2 = 2 * intensity * intensity;
+    double norm = 0;
+
+    for (int i = 0; i < weights.length; i++) {
+      int distance = i - radius;
+
+      weights[i] = Math.exp(-((distance * distance) / intensSquared2));
+      norm += weights[i];
+    }
+
+    int[] fullTaps = new int[weights.length];
+    int total = 0;
+    for (int i = 0; i < weights.length; i++) {
+      fullTaps[i] = (int) Math.round(weights[i] / norm * (1 << SHIFT));
+      total += fullTaps[i];
+    }
+    //Put the rounding error into the center tap so the kernel keeps the image brightness
+    fullTaps[radius] += (1 << SHIFT) - total;
+
+    int effectiveRadius = radius;
+    while (effectiveRadius > 0 && fullTaps[radius - effectiveRadius] == 0) {
+      effectiveRadius--;
+    }
+
+    this.radius = effectiveRadius;
+    this.taps = new int[2 * effectiveRadius + 1];
+    System.arraycopy(fullTaps, radius - effectiveRadius, taps, 0, taps.length);
+  }
+
+  boolean matches(int radius, double intensity) {
+    return requestedRadius == radius && this.intensity == intensity;
+  }
+
+  static GaussianKernel of(int radius, double intensity) {
+    return CACHE.computeIfAbsent(Pair.of(radius, intensity), key -> new GaussianKernel(radius, intensity));
+  }
+}
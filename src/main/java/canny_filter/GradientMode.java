@@ -0,0 +1,19 @@
+package canny_filter;
+
+/**
+ * How non-maximum suppression quantizes the gradient direction.
+ */
+public enum GradientMode {
+
+  /**
+   * Direction from {@link Math#atan2(double, double)} and magnitude from {@link Math#hypot(double, double)}. Slow,
+   * kept as reference for accuracy comparisons.
+   */
+  EXACT,
+
+  /**
+   * Direction from integer slope comparisons against tan(22.5) and tan(67.5), magnitude in the chosen
+   * {@link MagnitudeNorm}.
+   */
+  FAST
+}
@@ -0,0 +1,115 @@
+package canny_filter;
+
+/**
+ * Fixed range histogram of suppressed gradient magnitudes. The range depends on the magnitude norm, so each norm has
+ * its own instance. Only non zero magnitudes are counted.
+ */
+class MagnitudeHistogram {
+
+  static final int BINS = 2048;
+
+  private static final double MAX_EUCLIDEAN = Sobel.MAX_RESPONSE * Math.sqrt(2);
+  private static final double MAX_L1 = 2.0 * Sobel.MAX_RESPONSE;
+  private static final double MAX_SQUARED = 2.0 * Sobel.MAX_RESPONSE * Sobel.MAX_RESPONSE;
+
+  private static final MagnitudeHistogram EUCLIDEAN = new MagnitudeHistogram(MAX_EUCLIDEAN);
+  private static final MagnitudeHistogram L1 = new MagnitudeHistogram(MAX_L1);
+  private static final MagnitudeHistogram SQUARED = new MagnitudeHistogram(MAX_SQUARED);
+
+  private final float scale;
+  private final double binWidth;
+
+  private MagnitudeHistogram(double maxMagnitude) {
+    this.scale = (float) (BINS / maxMagnitude);
+    this.binWidth = maxMagnitude / BINS;
+  }
+
+  static MagnitudeHistogram of(MagnitudeNorm norm) {
+    switch (norm) {
+      case L1:
+        return L1;
+      case SQUARED:
+        return SQUARED;
+      default:
+        return EUCLIDEAN;
+    }
+  }
+
+  int bin(float magnitude) {
+    int bin = (int) (magnitude * scale);
+
+    return bin < BINS ? bin : BINS - 1;
+  }
+
+  /**
+   * Lower bound of the magnitudes counted in {@code bin}.
+   */
+  double value(int bin) {
+    return bin * binWidth;
+  }
+
+  /**
+   * Magnitude below which {@code fraction} of the counted magnitudes fall.
+   */
+  double percentile(int[] counts, double fraction) {
+    long total = 0;
+    for (int count : counts) {
+      total += count;
+    }
+
+    long target = (long) Math.ceil(total * fraction);
+    long seen = 0;
+    for (int bin = 0; bin < counts.length; bin++) {
+      seen += counts[bin];
+
+      if (seen >= target) {
+        return value(bin + 1);
+      }
+    }
+
+    return value(counts.length);
+  }
+
+  /**
+   * Otsu threshold: the magnitude splitting the counted magnitudes into two classes with the largest between class
+   * variance.
+   */
+  double otsu(int[] counts) {
+    long total = 0;
+    double weightedTotal = 0;
+    for (int bin = 0; bin < counts.length; bin++) {
+      total += counts[bin];
+      weightedTotal += (double) bin * counts[bin];
+    }
+
+    long background = 0;
+    double weightedBackground = 0;
+    double bestVariance = -1;
+    int bestBin = 0;
+
+    for (int bin = 0; bin < counts.length; bin++) {
+      background += counts[bin];
+      if (background == 0) {
+        continue;
+      }
+
+      long foreground = total - background;
+      if (foreground == 0) {
+        break;
+      }
+
+      weightedBackground += (double) bin * counts[bin];
+      double meanBackground = weightedBackground / background;
+      double meanForeground = (weightedTotal - weightedBackground) / foreground;
+      double diff = meanBackground - meanForeground;
+      double variance = (double) background * foreground * diff * diff;
+
+      if (variance > bestVariance) {
+        bestVariance = variance;
+        bestBin = bin;
+      }
+    }
+
+    return value(bestBin + 1);
+  }
+}
@@ -0,0 +1,23 @@
+package canny_filter;
+
+/**
+ * Gradient magnitude used by {@link GradientMode#FAST}. Thresholds are derived from the magnitude statistics, so
+ * they follow the chosen norm automatically.
+ */
+public enum MagnitudeNorm {
+
+  /**
+   * sqrt(gx^2 + gy^2), same values as the exact mode.
+   */
+  EUCLIDEAN,
+
+  /**
+   * |gx| + |gy|, no multiplications at all.
+   */
+  L1,
+
+  /**
+   * gx^2 + gy^2, keeps the ordering of the euclidean norm without the square root.
+   */
+  SQUARED
+}
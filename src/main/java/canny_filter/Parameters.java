@@ -11,11 +11,41 @@ public class Parameters {
 
   private boolean enableIntermediateResults;
   @Builder.Default
+  private BlurMode blurMode = BlurMode.GAUSSIAN;
+  @Builder.Default
   private int gaussianRadius = 7;
   @Builder.Default
   private double gaussianIntensity = 1.5;
   @Builder.Default
+  private double adaptiveSmoothing = 0.5; //h of the adaptive blur weights exp(-sqrt(d) / (2 * h * h))
+  @Builder.Default
   private double numberDeviations = 1; //Number of standard deviations above mean for high threshold
   @Builder.Default
   private double fract = 0.04; //Low threshold is this fraction of high threshold
+  @Builder.Default
+  private boolean reuseBuffers = true; //Keep working planes per thread between frames of the same size
+  @Builder.Default
+  private int parallelism = 1; //Number of fork/join threads processing strips of one frame, 1 runs sequentially
+  @Builder.Default
+  private GradientMode gradientMode = GradientMode.EXACT;
+  @Builder.Default
+  private MagnitudeNorm magnitudeNorm = MagnitudeNorm.EUCLIDEAN; //Used by GradientMode.FAST only
+  @Builder.Default
+  private ThresholdMode thresholdMode = ThresholdMode.MEAN_DEVIATION;
+  @Builder.Default
+  private double highPercentile = 0.9; //Fraction of non zero magnitudes below the high threshold in PERCENTILE mode
+  @Builder.Default
+  private double thresholdSmoothing = 0; //Weight of the previous thresholds in the new ones, 0 disables smoothing
+  @Builder.Default
+  private int statisticsInterval = 1; //Gather statistics every n-th frame, frames in between reuse the thresholds
+  @Builder.Default
+  private boolean incremental = false; //Recompute only blocks changed since the previous frame, needs reuseBuffers
+  @Builder.Default
+  private int incrementalBlockSize = 32; //Side of the square blocks compared between frames
+  @Builder.Default
+  private int incrementalTolerance = 4; //Gray level difference a pixel may have and still count as unchanged
+  @Builder.Default
+  private int incrementalRefreshInterval = 30; //Run a full detection every n-th frame, also refreshing statistics
+  @Builder.Default
+  private double incrementalMaxChanged = 0.5; //Fraction of changed blocks above which the full frame is detected
 }
@@ -1,5 +1,10 @@
 package canny_filter;
 
+import image_plane.BitPlane;
+import image_plane.BytePlane;
+import image_plane.FloatPlane;
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
 import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
@@ -10,61 +15,126 @@ import lombok.Getter;
 public class ResultsContainer {
 
   private boolean intermediateResultsEnabled;
-  @Getter
   @Builder.Default
   private List<BufferedImage> results = new LinkedList<>();
 
+  private BufferedImage defaultResult;   //Built from the default mask on first request
+
   @Getter
-  private BufferedImage defaultResult;
+  private BitPlane defaultMask;   //Default result packed into bits, for diffs of edge maps
+
+  public void saveIntermediateResult(IntPlane img) {
+    if (intermediateResultsEnabled) {
+      results.add(grayscalePlaneToImage(img));
+    }
+  }
 
-  public void saveIntermediateResult(int[][] img) {
+  public void saveIntermediateResult(ShortPlane img) {
     if (intermediateResultsEnabled) {
-      results.add(grayscaleArrayOfPixelsToImage(img, BufferedImage.TYPE_INT_RGB));
+      results.add(grayscalePlaneToImage(img));
     }
   }
 
-  public void saveDefaultValue(int[][] img) {
-    BufferedImage bufferedImage = grayscaleArrayOfPixelsToImage(img, BufferedImage.TYPE_BYTE_BINARY);
-    if (!intermediateResultsEnabled) {
-      results.add(bufferedImage);
+  public void saveIntermediateResult(BytePlane img) {
+    if (intermediateResultsEnabled) {
+      results.add(grayscalePlaneToImage(img, BufferedImage.TYPE_INT_RGB));
     }
+  }
 
-    defaultResult = bufferedImage;
+  public void saveDefaultValue(BytePlane img) {
+    defaultMask = BitPlane.of(img);
+    defaultResult = null;
   }
 
-  public void storeMagnitude(double[][] mag) {
+  /**
+   * Default result as a binary image. The image is only built when asked for, e.g. to save it to a file.
+   */
+  public BufferedImage getDefaultResult() {
+    if (defaultResult == null && defaultMask != null) {
+      defaultResult = defaultMask.toBinaryImage();
+    }
+
+    return defaultResult;
+  }
+
+  /**
+   * Intermediate results in the order of the stages, or only the default result when they are disabled.
+   */
+  public List<BufferedImage> getResults() {
+    if (!intermediateResultsEnabled && results.isEmpty() && defaultMask != null) {
+      results.add(getDefaultResult());
+    }
+
+    return results;
+  }
+
+  public void storeMagnitude(FloatPlane mag) {
     if (intermediateResultsEnabled) {
-      results.add(grayscaleArrayOfPixelsToImage(mag));
+      results.add(grayscalePlaneToImage(mag));
+    }
+  }
+
+  private static BufferedImage grayscalePlaneToImage(IntPlane raw) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
+
+    BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        img.setRGB(j, i, toGrayRgb(raw.get(j, i)));
+      }
     }
+
+    return img;
   }
 
-  private static BufferedImage grayscaleArrayOfPixelsToImage(int[][] raw, int imageType) {
-    int height = raw.length;
-    int width = raw[0].length;
+  private static BufferedImage grayscalePlaneToImage(ShortPlane raw) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
+
+    BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        img.setRGB(j, i, toGrayRgb(raw.get(j, i)));
+      }
+    }
+
+    return img;
+  }
+
+  private static BufferedImage grayscalePlaneToImage(BytePlane raw, int imageType) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
 
     BufferedImage img = new BufferedImage(width, height, imageType);
 
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
-        img.setRGB(j, i, (raw[i][j] << 16) | (raw[i][j] << 8) | (raw[i][j]));
+        img.setRGB(j, i, toGrayRgb(raw.get(j, i)));
       }
     }
 
     return img;
   }
 
-  private static BufferedImage grayscaleArrayOfPixelsToImage(double[][] raw) {
-    int height = raw.length;
-    int width = raw[0].length;
+  private static BufferedImage grayscalePlaneToImage(FloatPlane raw) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
 
-    BufferedImage img =  new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
-        img.setRGB(j, i, (int) raw[i][j] << 16 | (int) raw[i][j] << 8 | (int) raw[i][j]);
+        img.setRGB(j, i, toGrayRgb((int) raw.get(j, i)));
       }
     }
 
     return img;
   }
+
+  private static int toGrayRgb(int value) {
+    return (value << 16) | (value << 8) | value;
+  }
 }
@@ -14,6 +14,10 @@
  */
 package canny_filter;
 
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+import pixel_kernels.KernelBackends;
+
 /**
  * This class contains methods for masking an image array with horizontal and vertical Sobel masks.
  *
@@ -38,35 +42,65 @@ public class Sobel {
       {2, 1, 0, -1, -2}
   };
 
+  //Largest absolute response of either mask on 8 bit input: sum of the positive weights times 255
+  public static final int MAX_RESPONSE = 18 * 255;
+
   /**
-   * Send this method an int[][] array of grayscale pixel values to get a an image resulting
-   * from the convolution of this image with the horizontal Sobel mask.
+   * Send this method a plane of grayscale pixel values to get a an image resulting
+   * from the convolution of this image with the given Sobel mask.
    *
-   * @param raw int[][], array of grayscale pixel values 0-255
-   * @return out  int[][], output array of convolved image.
+   * @param raw IntPlane, grayscale pixel values 0-255
+   * @return out  ShortPlane, convolved image.
    */
-  public int[][] process(int[][] raw, int[][] mask) {
-    int height = raw.length;
-    int width = raw[0].length;
-    int[][] out = new int[height - 4][width - 4];
+  public ShortPlane process(IntPlane raw, int[][] mask) {
+    return process(raw, mask, null);
+  }
 
-    for (int r = 3; r < height - 3; r++) {
-      for (int c = 3; c < width - 3; c++) {
-        int sum = getGradientInPoint(raw, mask, r, c);
+  /**
+   * Same as {@link #process(IntPlane, int[][])} but writes into {@code out} when it is already 4 pixels smaller than
+   * {@code raw} in both dimensions. Border pixels of {@code out} are never written.
+   */
+  public ShortPlane process(IntPlane raw, int[][] mask, ShortPlane out) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
 
-        out[r - 1][c - 1] = sum;
-      }
+    if (out == null || !out.hasSize(width - 4, height - 4)) {
+      out = new ShortPlane(width - 4, height - 4);
     }
 
+    processRows(raw, mask, out, 0, out.getHeight());
+
     return out;
   }
 
-  public int getGradientInPoint(int[][] raw, int[][] mask, int y, int x) {
+  /**
+   * Convolves only the output rows {@code [fromRow, toRow)} of {@code out}, so strips of one image may be processed
+   * concurrently.
+   */
+  public void processRows(IntPlane raw, int[][] mask, ShortPlane out, int fromRow, int toRow) {
+    KernelBackends.best().sobelRows(raw, mask, out, fromRow, toRow);
+  }
+
+  /**
+   * Region variant of {@link #processRows(IntPlane, int[][], ShortPlane, int, int)}, limited to the output columns
+   * {@code [fromCol, toCol)}.
+   */
+  public void processRegion(IntPlane raw, int[][] mask, ShortPlane out, int fromRow, int toRow, int fromCol,
+      int toCol) {
+    KernelBackends.best().sobelRegion(raw, mask, out, fromRow, toRow, fromCol, toCol);
+  }
+
+  public int getGradientInPoint(IntPlane raw, int[][] mask, int y, int x) {
+    int[] data = raw.getData();
+    int stride = raw.getStride();
     int sum = 0;
 
     for (int kr = -1; kr < 4; kr++) {
+      int row = (y + kr) * stride + x;
+      int[] maskRow = mask[kr + 1];
+
       for (int kc = -1; kc < 4; kc++) {
-        sum += (mask[kr + 1][kc + 1] * raw[y + kr][x + kc]);
+        sum += (maskRow[kc + 1] * data[row + kc]);
       }
     }
     return sum;
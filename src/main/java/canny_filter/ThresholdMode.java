@@ -0,0 +1,23 @@
+package canny_filter;
+
+/**
+ * How the high threshold of the double threshold step is chosen. The low threshold is always
+ * {@link Parameters#getFract()} of the high one.
+ */
+public enum ThresholdMode {
+
+  /**
+   * Mean plus {@link Parameters#getNumberDeviations()} standard deviations of the suppressed magnitudes.
+   */
+  MEAN_DEVIATION,
+
+  /**
+   * Magnitude below which {@link Parameters#getHighPercentile()} of the non zero suppressed magnitudes fall.
+   */
+  PERCENTILE,
+
+  /**
+   * Otsu threshold of the non zero suppressed magnitudes.
+   */
+  OTSU
+}
@@ -0,0 +1,179 @@
+package contour_finder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import utils.BoxGrid;
+
+/**
+ * Joins fragments of one object into one contour. Contours whose bounding boxes overlap or are at most {@code gap}
+ * pixels apart are merged, which also absorbs boxes nested in another one. Candidates are found through a
+ * {@link BoxGrid} and grouped in a union-find table, a merged box may reach new neighbours, so passes repeat until no
+ * group forms. Merged contours sum the pixel counts, weight the centroids and keep the label of their first fragment.
+ */
+public class BoxMerger {
+
+  private final int gap;
+  private final int minPixelCount;
+  private final int frameWidth;
+  private final int frameHeight;
+  private final BoxGrid grid = new BoxGrid(64);
+  private final EquivalenceTable groups = new EquivalenceTable();
+
+  private int[] labels = new int[64];
+  private int[] minXs = new int[64];
+  private int[] minYs = new int[64];
+  private int[] maxXs = new int[64];
+  private int[] maxYs = new int[64];
+  private int[] pixelCounts = new int[64];
+  private double[] sumXs = new double[64];
+  private double[] sumYs = new double[64];
+
+  /**
+   * @param gap           largest distance in pixels between two merged boxes, 0 merges touching boxes only
+   * @param minPixelCount merged contours with fewer pixels are dropped
+   */
+  public BoxMerger(int gap, int minPixelCount, int frameWidth, int frameHeight) {
+    this.gap = gap;
+    this.minPixelCount = minPixelCount;
+    this.frameWidth = frameWidth;
+    this.frameHeight = frameHeight;
+  }
+
+  public List<Contour> merge(List<Contour> contours) {
+    int count = load(contours);
+
+    while (count > 1) {
+      int groupCount = group(count);
+
+      if (groupCount == count) {
+        break;
+      }
+      count = combine(count, groupCount);
+    }
+
+    List<Contour> merged = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (pixelCounts[i] >= minPixelCount) {
+        merged.add(Contour.builder()
+            .label(labels[i])
+            .pixelCount(pixelCounts[i])
+            .minX(minXs[i])
+            .minY(minYs[i])
+            .maxX(maxXs[i])
+            .maxY(maxYs[i])
+            .centroidX(sumXs[i] / pixelCounts[i])
+            .centroidY(sumYs[i] / pixelCounts[i])
+            .build());
+      }
+    }
+
+    return merged;
+  }
+
+  private int load(List<Contour> contours) {
+    int count = contours.size();
+    ensureCapacity(count);
+
+    for (int i = 0; i < count; i++) {
+      Contour contour = contours.get(i);
+      labels[i] = contour.getLabel();
+      minXs[i] = contour.getMinX();
+      minYs[i] = contour.getMinY();
+      maxXs[i] = contour.getMaxX();
+      maxYs[i] = contour.getMaxY();
+      pixelCounts[i] = contour.getPixelCount();
+      sumXs[i] = contour.getCentroidX() * contour.getPixelCount();
+      sumYs[i] = contour.getCentroidY() * contour.getPixelCount();
+    }
+
+    return count;
+  }
+
+  /**
+   * Unions every pair of boxes closer than the gap, box {@code i} has the label {@code i + 1}.
+   *
+   * @return number of groups
+   */
+  private int group(int count) {
+    grid.reset(frameWidth, frameHeight);
+    groups.reset();
+
+    for (int i = 0; i < count; i++) {
+      grid.insert(i, minXs[i], minYs[i], maxXs[i], maxYs[i]);
+      groups.newLabel();
+    }
+
+    for (int i = 0; i < count; i++) {
+      int found = grid.query(minXs[i] - gap - 1, minYs[i] - gap - 1, maxXs[i] + gap + 1, maxYs[i] + gap + 1);
+
+      for (int k = 0; k < found; k++) {
+        int j = grid.getResult(k);
+
+        if (j > i && isNear(i, j)) {
+          groups.union(i + 1, j + 1);
+        }
+      }
+    }
+
+    return groups.flatten();
+  }
+
+  private boolean isNear(int i, int j) {
+    int dx = Math.max(minXs[i], minXs[j]) - Math.min(maxXs[i], maxXs[j]) - 1;
+    int dy = Math.max(minYs[i], minYs[j]) - Math.min(maxYs[i], maxYs[j]) - 1;
+
+    return dx <= gap && dy <= gap;
+  }
+
+  /**
+   * Folds every box into the slot of its group. Groups are numbered in the order of their first box, so the slot of a
+   * group is never behind its first box and is written only after the box it held was folded.
+   */
+  private int combine(int count, int groupCount) {
+    int nextGroup = 0;
+
+    for (int i = 0; i < count; i++) {
+      int g = groups.finalLabel(i + 1) - 1;
+
+      if (g == nextGroup) {
+        labels[g] = labels[i];
+        minXs[g] = minXs[i];
+        minYs[g] = minYs[i];
+        maxXs[g] = maxXs[i];
+        maxYs[g] = maxYs[i];
+        pixelCounts[g] = pixelCounts[i];
+        sumXs[g] = sumXs[i];
+        sumYs[g] = sumYs[i];
+        nextGroup++;
+        continue;
+      }
+
+      minXs[g] = Math.min(minXs[g], minXs[i]);
+      minYs[g] = Math.min(minYs[g], minYs[i]);
+      maxXs[g] = Math.max(maxXs[g], maxXs[i]);
+      maxYs[g] = Math.max(maxYs[g], maxYs[i]);
+      pixelCounts[g] += pixelCounts[i];
+      sumXs[g] += sumXs[i];
+      sumYs[g] += sumYs[i];
+    }
+
+    return groupCount;
+  }
+
+  private void ensureCapacity(int count) {
+    if (labels.length >= count) {
+      return;
+    }
+
+    int capacity = Math.max(count, labels.length * 2);
+    labels = Arrays.copyOf(labels, capacity);
+    minXs = Arrays.copyOf(minXs, capacity);
+    minYs = Arrays.copyOf(minYs, capacity);
+    maxXs = Arrays.copyOf(maxXs, capacity);
+    maxYs = Arrays.copyOf(maxYs, capacity);
+    pixelCounts = Arrays.copyOf(pixelCounts, capacity);
+    sumXs = Arrays.copyOf(sumXs, capacity);
+    sumYs = Arrays.copyOf(sumYs, capacity);
+  }
+}
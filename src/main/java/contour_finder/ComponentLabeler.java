@@ -0,0 +1,223 @@
+package contour_finder;
+
+import image_plane.IntPlane;
+import java.util.concurrent.ForkJoinPool;
+import lombok.Getter;
+import utils.RowStrips;
+
+/**
+ * Two pass connected component labeling of binary masks with the 8-connectivity of {@link Direction}. The first pass
+ * gives every foreground pixel a provisional label from its already scanned neighbours and records equivalences in a
+ * union-find table, the second pass replaces provisional labels by final ones. Both passes are linear in the number of
+ * pixels. {@link ComponentStats} of every component are accumulated run by run in the second pass. The label plane is
+ * reused between masks of the same size, so a labeler is not thread safe.
+ *
+ * <p>The mask may be split into horizontal strips labeled in parallel, each with its own equivalence table. Strip
+ * tables are then joined into one global table by merging equivalences along the strip borders only. Global labels
+ * are ordered by strip and then by creation, so components get the same numbers and statistics as with one strip.
+ */
+public class ComponentLabeler {
+
+  private final EquivalenceTable equivalences = new EquivalenceTable();
+  @Getter
+  private final ComponentStats stats = new ComponentStats();
+  private EquivalenceTable[] stripEquivalences = new EquivalenceTable[0];
+  private ComponentStats[] stripStats = new ComponentStats[0];
+  private int[] stripLabelCounts = new int[0];
+  private int[] stripOffsets = new int[0];
+  private IntPlane labels;
+
+  @Getter
+  private int componentCount;
+
+  /**
+   * Labels the non zero pixels of {@code mask} on the calling thread. The returned plane holds 0 for the background
+   * and labels {@code 1..componentCount} numbered in raster order of the first pixel of every component. It is owned
+   * by the labeler and overwritten by the next call.
+   */
+  public IntPlane label(IntPlane mask) {
+    return label(mask, null, 1);
+  }
+
+  /**
+   * Same as {@link #label(IntPlane)} with the mask split into {@code strips} strips running on {@code pool}. Without a
+   * pool the mask is labeled as one strip.
+   */
+  public IntPlane label(IntPlane mask, ForkJoinPool pool, int strips) {
+    int height = mask.getHeight();
+    int stripTotal = pool == null ? 1 : Math.max(1, Math.min(strips, height));
+    prepare(mask, stripTotal);
+
+    RowStrips.forEachStrip(pool, height, stripTotal, (strip, from, to) -> labelStrip(mask, strip, from, to));
+
+    equivalences.reset();
+    for (int strip = 0; strip < stripTotal; strip++) {
+      stripOffsets[strip] = equivalences.size() - 1;
+
+      for (int i = 0; i < stripLabelCounts[strip]; i++) {
+        equivalences.newLabel();
+      }
+    }
+
+    for (int strip = 1; strip < stripTotal; strip++) {
+      mergeBorder(strip, RowStrips.stripStart(height, stripTotal, strip));
+    }
+
+    componentCount = equivalences.flatten();
+
+    RowStrips.forEachStrip(pool, height, stripTotal, (strip, from, to) -> relabelStrip(strip, from, to));
+
+    stats.reset(componentCount);
+    for (int strip = 0; strip < stripTotal; strip++) {
+      for (int label = 1; label <= stripLabelCounts[strip]; label++) {
+        stats.merge(stripStats[strip], label, equivalences.finalLabel(stripOffsets[strip] + label));
+      }
+    }
+
+    return labels;
+  }
+
+  private void prepare(IntPlane mask, int strips) {
+    if (labels == null || !labels.hasSameSize(mask)) {
+      labels = new IntPlane(mask.getWidth(), mask.getHeight());
+    }
+
+    if (stripEquivalences.length < strips) {
+      stripEquivalences = new EquivalenceTable[strips];
+      stripStats = new ComponentStats[strips];
+      stripLabelCounts = new int[strips];
+      stripOffsets = new int[strips];
+
+      for (int strip = 0; strip < strips; strip++) {
+        stripEquivalences[strip] = new EquivalenceTable();
+        stripStats[strip] = new ComponentStats();
+      }
+    }
+  }
+
+  /**
+   * First pass over the rows {@code [fromRow, toRow)}. The first row of a strip is labeled as if it was the top row of
+   * the mask, its connections to the strip above are merged later.
+   */
+  private void labelStrip(IntPlane mask, int strip, int fromRow, int toRow) {
+    int width = mask.getWidth();
+    int[] in = mask.getData();
+    int[] out = labels.getData();
+    int maskStride = mask.getStride();
+    int stride = labels.getStride();
+    EquivalenceTable table = stripEquivalences[strip];
+    table.reset();
+
+    for (int y = fromRow; y < toRow; y++) {
+      int maskRow = y * maskStride;
+      int row = y * stride;
+
+      for (int x = 0; x < width; x++) {
+        if (in[maskRow + x] == 0) {
+          out[row + x] = 0;
+          continue;
+        }
+
+        out[row + x] = provisionalLabel(table, out, row + x, row - stride + x, x, y == fromRow, width);
+      }
+    }
+
+    stripLabelCounts[strip] = table.flatten();
+  }
+
+  /**
+   * Picks the label of a foreground pixel from its west, north west, north and north east neighbours. When the north
+   * neighbour is set all others touch it and were merged with it already, otherwise at most the north east one and
+   * one of west or north west need a union.
+   */
+  private static int provisionalLabel(EquivalenceTable table, int[] out, int p, int north, int x, boolean firstRow,
+      int width) {
+    int w = x > 0 ? out[p - 1] : 0;
+
+    if (firstRow) {
+      return w != 0 ? w : table.newLabel();
+    }
+
+    int n = out[north];
+    if (n != 0) {
+      return n;
+    }
+
+    int nw = x > 0 ? out[north - 1] : 0;
+    int ne = x < width - 1 ? out[north + 1] : 0;
+    int left = w != 0 ? w : nw;
+
+    if (ne != 0) {
+      return left != 0 ? table.union(ne, left) : ne;
+    }
+
+    return left != 0 ? left : table.newLabel();
+  }
+
+  /**
+   * Unions the global labels of foreground pixels in the first row of {@code strip} with their north west, north and
+   * north east neighbours in the last row of the strip above.
+   */
+  private void mergeBorder(int strip, int y) {
+    int width = labels.getWidth();
+    int stride = labels.getStride();
+    int[] out = labels.getData();
+    int row = y * stride;
+    int north = row - stride;
+
+    for (int x = 0; x < width; x++) {
+      if (out[row + x] == 0) {
+        continue;
+      }
+
+      int label = globalLabel(strip, out[row + x]);
+
+      for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+        if (out[north + nx] != 0) {
+          equivalences.union(label, globalLabel(strip - 1, out[north + nx]));
+        }
+      }
+    }
+  }
+
+  private int globalLabel(int strip, int provisional) {
+    return stripOffsets[strip] + stripEquivalences[strip].finalLabel(provisional);
+  }
+
+  /**
+   * Second pass over the rows {@code [fromRow, toRow)}: writes final labels and accumulates statistics per strip
+   * label, which are merged into the global statistics afterwards.
+   */
+  private void relabelStrip(int strip, int fromRow, int toRow) {
+    int width = labels.getWidth();
+    int stride = labels.getStride();
+    int[] out = labels.getData();
+    EquivalenceTable table = stripEquivalences[strip];
+    ComponentStats partial = stripStats[strip];
+    partial.reset(stripLabelCounts[strip]);
+
+    for (int y = fromRow; y < toRow; y++) {
+      int row = y * stride;
+      int x = 0;
+
+      while (x < width) {
+        if (out[row + x] == 0) {
+          x++;
+          continue;
+        }
+
+        //Pixels of a run are connected through their west neighbours, so they share one final label
+        int stripLabel = table.finalLabel(out[row + x]);
+        int label = equivalences.finalLabel(stripOffsets[strip] + stripLabel);
+        int runStart = x;
+
+        while (x < width && out[row + x] != 0) {
+          out[row + x] = label;
+          x++;
+        }
+
+        partial.addRun(stripLabel, runStart, x, y);
+      }
+    }
+  }
+}
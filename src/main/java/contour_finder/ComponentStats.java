@@ -0,0 +1,121 @@
+package contour_finder;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Running statistics of labeled components kept as parallel primitive arrays indexed by label: pixel count, bounding
+ * box and the first-order moments giving the centroid. Statistics are accumulated run by run while a mask is labeled,
+ * so no per pixel data is kept. Label 0 is the background and is not used.
+ */
+public class ComponentStats {
+
+  @Getter
+  private int componentCount;
+  private int[] pixelCounts = new int[0];
+  private int[] minXs = new int[0];
+  private int[] minYs = new int[0];
+  private int[] maxXs = new int[0];
+  private int[] maxYs = new int[0];
+  private long[] sumXs = new long[0];
+  private long[] sumYs = new long[0];
+
+  /**
+   * Clears the statistics of labels {@code 1..componentCount}, growing the arrays only when needed.
+   */
+  public void reset(int componentCount) {
+    this.componentCount = componentCount;
+    int size = componentCount + 1;
+
+    if (pixelCounts.length < size) {
+      int capacity = Math.max(size, pixelCounts.length * 2);
+      pixelCounts = new int[capacity];
+      minXs = new int[capacity];
+      minYs = new int[capacity];
+      maxXs = new int[capacity];
+      maxYs = new int[capacity];
+      sumXs = new long[capacity];
+      sumYs = new long[capacity];
+    }
+
+    Arrays.fill(pixelCounts, 0, size, 0);
+    Arrays.fill(minXs, 0, size, Integer.MAX_VALUE);
+    Arrays.fill(minYs, 0, size, Integer.MAX_VALUE);
+    Arrays.fill(maxXs, 0, size, Integer.MIN_VALUE);
+    Arrays.fill(maxYs, 0, size, Integer.MIN_VALUE);
+    Arrays.fill(sumXs, 0, size, 0);
+    Arrays.fill(sumYs, 0, size, 0);
+  }
+
+  /**
+   * Adds the pixels {@code [fromX, toX)} of row {@code y} to the component {@code label}.
+   */
+  public void addRun(int label, int fromX, int toX, int y) {
+    int length = toX - fromX;
+
+    pixelCounts[label] += length;
+    minXs[label] = Math.min(minXs[label], fromX);
+    maxXs[label] = Math.max(maxXs[label], toX - 1);
+    minYs[label] = Math.min(minYs[label], y);
+    maxYs[label] = Math.max(maxYs[label], y);
+    sumXs[label] += (long) (fromX + toX - 1) * length / 2;
+    sumYs[label] += (long) y * length;
+  }
+
+  /**
+   * Adds all statistics of component {@code sourceLabel} of {@code source} to component {@code label}.
+   */
+  public void merge(ComponentStats source, int sourceLabel, int label) {
+    pixelCounts[label] += source.pixelCounts[sourceLabel];
+    minXs[label] = Math.min(minXs[label], source.minXs[sourceLabel]);
+    maxXs[label] = Math.max(maxXs[label], source.maxXs[sourceLabel]);
+    minYs[label] = Math.min(minYs[label], source.minYs[sourceLabel]);
+    maxYs[label] = Math.max(maxYs[label], source.maxYs[sourceLabel]);
+    sumXs[label] += source.sumXs[sourceLabel];
+    sumYs[label] += source.sumYs[sourceLabel];
+  }
+
+  public int getPixelCount(int label) {
+    return pixelCounts[label];
+  }
+
+  public int getMinX(int label) {
+    return minXs[label];
+  }
+
+  public int getMinY(int label) {
+    return minYs[label];
+  }
+
+  public int getMaxX(int label) {
+    return maxXs[label];
+  }
+
+  public int getMaxY(int label) {
+    return maxYs[label];
+  }
+
+  public double getCentroidX(int label) {
+    return (double) sumXs[label] / pixelCounts[label];
+  }
+
+  public double getCentroidY(int label) {
+    return (double) sumYs[label] / pixelCounts[label];
+  }
+
+  /**
+   * Copies the statistics of component {@code label} into a standalone {@link Contour}.
+   */
+  public Contour toContour(int label) {
+    return Contour.builder()
+        .label(label)
+        .pixelCount(pixelCounts[label])
+        .minX(minXs[label])
+        .minY(minYs[label])
+        .maxX(maxXs[label])
+        .maxY(maxYs[label])
+        .centroidX(getCentroidX(label))
+        .centroidY(getCentroidY(label))
+        .build();
+  }
+}
@@ -1,15 +1,30 @@
 package contour_finder;
 
-import java.util.ArrayList;
-import java.util.List;
 import lombok.Builder;
 import lombok.Getter;
-import org.apache.commons.lang3.tuple.Pair;
 
+/**
+ * Connected component summarized by its statistics. The pixels themselves are not stored, they can be listed with
+ * {@link ContoursFinder#getContourPixels(Contour)} until the next frame is processed.
+ */
+@Getter
 @Builder
 public class Contour {
 
-  @Getter
-  @Builder.Default
-  private List<Pair<Integer, Integer>> detectedObjectEdge = new ArrayList<>();
+  private final int label;        //Label of the component in the label plane it was found in
+  private final int pixelCount;
+  private final int minX;
+  private final int minY;
+  private final int maxX;         //Inclusive
+  private final int maxY;         //Inclusive
+  private final double centroidX;
+  private final double centroidY;
+
+  public int getWidth() {
+    return maxX - minX + 1;
+  }
+
+  public int getHeight() {
+    return maxY - minY + 1;
+  }
 }
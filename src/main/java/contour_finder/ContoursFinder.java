@@ -1,104 +1,108 @@
 package contour_finder;
 
+import image_plane.IntPlane;
+import image_plane.RunLengthMask;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.ArrayUtils;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.commons.lang3.tuple.Pair;
 import utils.ImageUtils;
+import utils.RowStrips;
 
 
-@RequiredArgsConstructor
 public class ContoursFinder {
 
   private final int maxContourPixelsCount;
-  private ReentrantLock lock = new ReentrantLock();
-  private final Set<Contour> contours = Collections.synchronizedSet(new HashSet<>());
+  private final ForkJoinPool pool;
+  private final ComponentLabeler labeler = new ComponentLabeler();
+  private final RunLabeler runLabeler = new RunLabeler();
+  private IntPlane mask;
+
+  //Result of the last call, either a label plane or a run mask with labels of its runs
+  private IntPlane labels;
+  private RunLengthMask runMask;
+  private int[] runLabels;
+
+  /**
+   * @param pool pool labeling strips of a frame, {@code null} labels on the calling thread
+   */
+  public ContoursFinder(int maxContourPixelsCount, ForkJoinPool pool) {
+    this.maxContourPixelsCount = maxContourPixelsCount;
+    this.pool = pool;
+  }
 
+  /**
+   * Finds 8-connected components of the non zero pixels of {@code frame} and returns those with at least
+   * {@code maxContourPixelsCount} pixels, ordered by the raster position of their first pixel.
+   */
   public List<Contour> findContours(BufferedImage frame) {
-    Integer[][] pixels = Arrays.stream(ImageUtils.rgbImageToGrayscaleArrayOfPixels(frame))
-        .map(ArrayUtils::toObject)
-        .toArray(Integer[][]::new);
-
-    IntStream.range(0, pixels.length)
-        .parallel()
-        .forEach(y -> processLine(pixels, y));
+    mask = ImageUtils.rgbImageToGrayscalePlane(frame, mask);
+    int strips = pool == null ? 1 : RowStrips.stripCount(mask.getHeight(), pool.getParallelism());
+    labels = labeler.label(mask, pool, strips);
+    runMask = null;
 
-    return contours.stream()
-        .filter(contour -> contour.getDetectedObjectEdge().size() >= maxContourPixelsCount)
-        .collect(Collectors.toList());
+    return collectContours(labeler.getStats());
   }
 
-  private void processLine(Integer[][] pixels, int y) {
-    for (int x = 0; x < pixels[0].length; x++) {
-      int currentPixel = pixels[y][x];
-      Pair<Integer, Integer> currentPixelCoord = Pair.of(x, y);
-
-      if (currentPixel == 0) {
-        continue;
-      }
-
-      lock.lock();
-      Set<Contour> neighborhoods = getNeighborhoods(currentPixelCoord, pixels);
-
-      if (neighborhoods.size() > 1) {
-        List<Pair<Integer, Integer>> mergedContours = neighborhoods.stream()
-            .map(Contour::getDetectedObjectEdge)
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
+  /**
+   * Same as {@link #findContours(BufferedImage)} for a run length encoded mask. Labeling walks the runs only.
+   */
+  public List<Contour> findContours(RunLengthMask frame) {
+    int strips = pool == null ? 1 : RowStrips.stripCount(frame.getHeight(), pool.getParallelism());
+    runLabels = runLabeler.label(frame, pool, strips);
+    runMask = frame;
+    labels = null;
 
-        mergedContours.add(currentPixelCoord);
+    return collectContours(runLabeler.getStats());
+  }
 
-        contours.removeAll(neighborhoods);
-        contours.add(Contour.builder().detectedObjectEdge(mergedContours).build());
-        lock.unlock();
-        continue;
+  /**
+   * Lists the pixels of a contour found by the last {@code findContours} call as (x, y) pairs. Only the rows of the
+   * bounding box of the contour are scanned.
+   */
+  public List<Pair<Integer, Integer>> getContourPixels(Contour contour) {
+    List<Pair<Integer, Integer>> pixels = new ArrayList<>(contour.getPixelCount());
+
+    if (runMask != null) {
+      for (int y = contour.getMinY(); y <= contour.getMaxY(); y++) {
+        for (int run = runMask.getRowStart(y); run < runMask.getRowEnd(y); run++) {
+          if (runLabels[run] != contour.getLabel()) {
+            continue;
+          }
+
+          for (int x = runMask.getRunStart(run); x < runMask.getRunEnd(run); x++) {
+            pixels.add(Pair.of(x, y));
+          }
+        }
       }
 
-      if (neighborhoods.size() == 1) {
+      return pixels;
+    }
+
+    int[] data = labels.getData();
+    int stride = labels.getStride();
 
-        neighborhoods.iterator().next().getDetectedObjectEdge().add(currentPixelCoord);
-        lock.unlock();
-        continue;
+    for (int y = contour.getMinY(); y <= contour.getMaxY(); y++) {
+      for (int x = contour.getMinX(); x <= contour.getMaxX(); x++) {
+        if (data[y * stride + x] == contour.getLabel()) {
+          pixels.add(Pair.of(x, y));
+        }
       }
-
-      Contour contour = Contour.builder().build();
-      contour.getDetectedObjectEdge().add(currentPixelCoord);
-      contours.add(contour);
-      lock.unlock();
     }
-  }
-
-  private Set<Contour> getNeighborhoods(
-      Pair<Integer, Integer> currentPixelCoord,
-      Integer[][] pixels) {
 
-    return Direction.VALUES.stream()
-        .filter(direction -> direction.getCheckNextPixelExistence().apply(currentPixelCoord, pixels))
-        .map(direction -> getContourByPixelCoord(direction.getNextPixel().apply(currentPixelCoord)))
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .collect(Collectors.toSet());
+    return pixels;
   }
 
-  private Optional<Contour> getContourByPixelCoord(Pair<Integer, Integer> contourPixel) {
+  private List<Contour> collectContours(ComponentStats stats) {
+    List<Contour> contours = new ArrayList<>();
 
-    return contours.stream()
-        .filter(contour -> isPixelCoordInContour(contour, contourPixel))
-        .findFirst();
-  }
-
-  private boolean isPixelCoordInContour(Contour contour, Pair<Integer, Integer> contourPixel) {
+    for (int label = 1; label <= stats.getComponentCount(); label++) {
+      if (stats.getPixelCount(label) >= maxContourPixelsCount) {
+        contours.add(stats.toContour(label));
+      }
+    }
 
-    return contour.getDetectedObjectEdge().stream()
-        .anyMatch(pixel -> pixel.equals(contourPixel));
+    return contours;
   }
 }
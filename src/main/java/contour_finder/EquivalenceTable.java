@@ -0,0 +1,82 @@
+package contour_finder;
+
+import java.util.Arrays;
+
+/**
+ * Union-find table of provisional component labels. Label 0 is the background and is never merged. A union always
+ * makes the smaller root the parent, so every label points to a smaller one and the root of a component is the label
+ * created first.
+ */
+class EquivalenceTable {
+
+  private int[] parent = new int[256];
+  private int size = 1;
+
+  void reset() {
+    size = 1;
+  }
+
+  /**
+   * Number of labels created since the last reset, including the background label 0.
+   */
+  int size() {
+    return size;
+  }
+
+  int newLabel() {
+    if (size == parent.length) {
+      parent = Arrays.copyOf(parent, parent.length * 2);
+    }
+
+    parent[size] = size;
+
+    return size++;
+  }
+
+  int find(int label) {
+    while (parent[label] != label) {
+      parent[label] = parent[parent[label]];    //Path halving
+      label = parent[label];
+    }
+
+    return label;
+  }
+
+  int union(int first, int second) {
+    int firstRoot = find(first);
+    int secondRoot = find(second);
+
+    if (firstRoot < secondRoot) {
+      parent[secondRoot] = firstRoot;
+      return firstRoot;
+    }
+
+    parent[firstRoot] = secondRoot;
+    return secondRoot;
+  }
+
+  /**
+   * Numbers the roots 1..n in the order they were created and makes every label point to the final number of its
+   * root. Afterwards {@link #finalLabel(int)} is valid until the next {@link #reset()}.
+   *
+   * @return number of components n
+   */
+  int flatten() {
+    int count = 0;
+
+    for (int label = 1; label < size; label++) {
+      if (parent[label] == label) {
+        parent[label] = ++count;
+      } else {
+        //The parent is smaller, so it already holds the final number
+        parent[label] = parent[parent[label]];
+      }
+    }
+
+    return count;
+  }
+
+  int finalLabel(int label) {
+    return parent[label];
+  }
+}
@@ -0,0 +1,173 @@
+package contour_finder;
+
+import image_plane.RunLengthMask;
+import java.util.concurrent.ForkJoinPool;
+import lombok.Getter;
+import utils.RowStrips;
+
+/**
+ * Connected component labeling of a {@link RunLengthMask} with the 8-connectivity of {@link Direction}. Every run gets
+ * a provisional label, runs of adjacent rows that overlap or touch diagonally are merged in a union-find table. Both
+ * passes walk the runs only, so the cost depends on the number of runs instead of the frame area. Components get the
+ * same numbers and {@link ComponentStats} as with {@link ComponentLabeler}.
+ *
+ * <p>Like {@link ComponentLabeler} the mask may be split into horizontal strips labeled in parallel, each with its own
+ * equivalence table, and the strips are joined by merging the runs along the strip borders only.
+ */
+public class RunLabeler {
+
+  private final EquivalenceTable equivalences = new EquivalenceTable();
+  @Getter
+  private final ComponentStats stats = new ComponentStats();
+  private EquivalenceTable[] stripEquivalences = new EquivalenceTable[0];
+  private ComponentStats[] stripStats = new ComponentStats[0];
+  private int[] stripLabelCounts = new int[0];
+  private int[] stripOffsets = new int[0];
+  private int[] runLabels = new int[256];
+
+  @Getter
+  private int componentCount;
+
+  /**
+   * Labels the runs of {@code mask} on the calling thread. The returned array holds the final label of every run
+   * index, it is owned by the labeler and overwritten by the next call.
+   */
+  public int[] label(RunLengthMask mask) {
+    return label(mask, null, 1);
+  }
+
+  /**
+   * Same as {@link #label(RunLengthMask)} with the rows split into {@code strips} strips running on {@code pool}.
+   * Without a pool the mask is labeled as one strip.
+   */
+  public int[] label(RunLengthMask mask, ForkJoinPool pool, int strips) {
+    int height = mask.getHeight();
+    int stripTotal = pool == null ? 1 : Math.max(1, Math.min(strips, height));
+    prepare(mask.getRunCount(), stripTotal);
+
+    RowStrips.forEachStrip(pool, height, stripTotal, (strip, from, to) -> labelStrip(mask, strip, from, to));
+
+    equivalences.reset();
+    for (int strip = 0; strip < stripTotal; strip++) {
+      stripOffsets[strip] = equivalences.size() - 1;
+
+      for (int i = 0; i < stripLabelCounts[strip]; i++) {
+        equivalences.newLabel();
+      }
+    }
+
+    for (int strip = 1; strip < stripTotal; strip++) {
+      mergeBorder(mask, strip, RowStrips.stripStart(height, stripTotal, strip));
+    }
+
+    componentCount = equivalences.flatten();
+
+    RowStrips.forEachStrip(pool, height, stripTotal, (strip, from, to) -> relabelStrip(mask, strip, from, to));
+
+    stats.reset(componentCount);
+    for (int strip = 0; strip < stripTotal; strip++) {
+      for (int label = 1; label <= stripLabelCounts[strip]; label++) {
+        stats.merge(stripStats[strip], label, equivalences.finalLabel(stripOffsets[strip] + label));
+      }
+    }
+
+    return runLabels;
+  }
+
+  private void prepare(int runCount, int strips) {
+    if (runLabels.length < runCount) {
+      runLabels = new int[Math.max(runCount, runLabels.length * 2)];
+    }
+
+    if (stripEquivalences.length < strips) {
+      stripEquivalences = new EquivalenceTable[strips];
+      stripStats = new ComponentStats[strips];
+      stripLabelCounts = new int[strips];
+      stripOffsets = new int[strips];
+
+      for (int strip = 0; strip < strips; strip++) {
+        stripEquivalences[strip] = new EquivalenceTable();
+        stripStats[strip] = new ComponentStats();
+      }
+    }
+  }
+
+  /**
+   * First pass over the runs of the rows {@code [fromRow, toRow)}. The first row of a strip is labeled as if it was
+   * the top row of the mask, its connections to the strip above are merged later.
+   */
+  private void labelStrip(RunLengthMask mask, int strip, int fromRow, int toRow) {
+    EquivalenceTable table = stripEquivalences[strip];
+    table.reset();
+
+    for (int y = fromRow; y < toRow; y++) {
+      int previous = y > fromRow ? mask.getRowStart(y - 1) : 0;
+      int previousEnd = y > fromRow ? mask.getRowEnd(y - 1) : 0;
+
+      for (int run = mask.getRowStart(y); run < mask.getRowEnd(y); run++) {
+        int start = mask.getRunStart(run);
+        int end = mask.getRunEnd(run);
+
+        //Runs of the previous row ending left of the diagonal neighbour can not touch this or any later run
+        while (previous < previousEnd && mask.getRunEnd(previous) < start) {
+          previous++;
+        }
+
+        int label = 0;
+        for (int other = previous; other < previousEnd && mask.getRunStart(other) <= end; other++) {
+          label = label == 0 ? runLabels[other] : table.union(label, runLabels[other]);
+        }
+
+        runLabels[run] = label != 0 ? label : table.newLabel();
+      }
+    }
+
+    stripLabelCounts[strip] = table.flatten();
+  }
+
+  /**
+   * Unions the global labels of the runs in the first row of {@code strip} with the runs they touch in the last row
+   * of the strip above.
+   */
+  private void mergeBorder(RunLengthMask mask, int strip, int y) {
+    int previous = mask.getRowStart(y - 1);
+    int previousEnd = mask.getRowEnd(y - 1);
+
+    for (int run = mask.getRowStart(y); run < mask.getRowEnd(y); run++) {
+      int start = mask.getRunStart(run);
+      int end = mask.getRunEnd(run);
+
+      while (previous < previousEnd && mask.getRunEnd(previous) < start) {
+        previous++;
+      }
+
+      int label = globalLabel(strip, runLabels[run]);
+      for (int other = previous; other < previousEnd && mask.getRunStart(other) <= end; other++) {
+        equivalences.union(label, globalLabel(strip - 1, runLabels[other]));
+      }
+    }
+  }
+
+  private int globalLabel(int strip, int provisional) {
+    return stripOffsets[strip] + stripEquivalences[strip].finalLabel(provisional);
+  }
+
+  /**
+   * Second pass over the runs of the rows {@code [fromRow, toRow)}: writes final labels and accumulates statistics
+   * per strip label, which are merged into the global statistics afterwards.
+   */
+  private void relabelStrip(RunLengthMask mask, int strip, int fromRow, int toRow) {
+    EquivalenceTable table = stripEquivalences[strip];
+    ComponentStats partial = stripStats[strip];
+    partial.reset(stripLabelCounts[strip]);
+
+    for (int y = fromRow; y < toRow; y++) {
+      for (int run = mask.getRowStart(y); run < mask.getRowEnd(y); run++) {
+        int stripLabel = table.finalLabel(runLabels[run]);
+
+        runLabels[run] = equivalences.finalLabel(stripOffsets[strip] + stripLabel);
+        partial.addRun(stripLabel, mask.getRunStart(run), mask.getRunEnd(run), y);
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package image_plane;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import lombok.Getter;
+
+/**
+ * Binary plane packing 64 pixels into every {@code long}. The pixel {@code (x, y)} is bit {@code x % 64} of word
+ * {@code y * wordsPerRow + x / 64}, so {@link #getStride()} is counted in bits and {@link #index(int, int)} is the
+ * bit index. Bits past the width of a row are always zero, which lets whole planes be diffed word by word with
+ * XOR and counted with {@link Long#bitCount(long)}: an 800x600 frame takes about 7500 words.
+ */
+@Getter
+public class BitPlane extends Plane {
+
+  private final int wordsPerRow;
+  private final long[] words;
+
+  public BitPlane(int width, int height) {
+    super(width, height, ((width + 63) >>> 6) << 6);
+    this.wordsPerRow = stride >>> 6;
+    this.words = new long[wordsPerRow * height];
+  }
+
+  /**
+   * Packs a byte plane, values of 128 and more are set like in a {@link BufferedImage#TYPE_BYTE_BINARY} image.
+   */
+  public static BitPlane of(BytePlane plane) {
+    BitPlane bits = new BitPlane(plane.getWidth(), plane.getHeight());
+    bits.pack(plane);
+
+    return bits;
+  }
+
+  /**
+   * Packs a {@link BufferedImage#TYPE_BYTE_BINARY} image straight from its raster.
+   */
+  public static BitPlane of(BufferedImage binaryImage) {
+    if (binaryImage.getType() != BufferedImage.TYPE_BYTE_BINARY
+        || binaryImage.getColorModel().getPixelSize() != 1) {
+      throw new IllegalArgumentException("Image must be a one bit TYPE_BYTE_BINARY image");
+    }
+
+    BitPlane bits = new BitPlane(binaryImage.getWidth(), binaryImage.getHeight());
+    byte[] raster = ((DataBufferByte) binaryImage.getRaster().getDataBuffer()).getData();
+    int rowBytes = (bits.width + 7) >>> 3;
+
+    for (int y = 0; y < bits.height; y++) {
+      for (int b = 0; b < rowBytes; b++) {
+        //Bytes of the raster hold the leftmost pixel in their highest bit
+        long value = Integer.reverse(raster[y * rowBytes + b] & 0xff) >>> 24;
+        bits.words[y * bits.wordsPerRow + (b >>> 3)] |= value << ((b & 7) << 3);
+      }
+    }
+    bits.clearPadding();
+
+    return bits;
+  }
+
+  public void copyFrom(BitPlane source) {
+    System.arraycopy(source.words, 0, words, 0, words.length);
+  }
+
+  /**
+   * Packs {@code plane} into this plane of the same size, values of 128 and more are set.
+   */
+  public void pack(BytePlane plane) {
+    byte[] data = plane.getData();
+
+    for (int y = 0; y < height; y++) {
+      int row = plane.index(0, y);
+      int wordRow = y * wordsPerRow;
+
+      for (int w = 0; w < wordsPerRow; w++) {
+        int from = w << 6;
+        int to = Math.min(width, from + 64);
+        long word = 0;
+
+        for (int x = from; x < to; x++) {
+          //The sign bit of the byte is set exactly for values of 128 and more
+          word |= (long) ((data[row + x] >>> 31) & 1) << (x - from);
+        }
+        words[wordRow + w] = word;
+      }
+    }
+  }
+
+  /**
+   * Writes set pixels as {@code value} and the others as 0 into {@code out}, row after row without padding.
+   */
+  public void unpack(byte[] out, byte value) {
+    for (int y = 0; y < height; y++) {
+      int row = y * width;
+      int wordRow = y * wordsPerRow;
+
+      for (int x = 0; x < width; x++) {
+        long word = words[wordRow + (x >>> 6)];
+        out[row + x] = (word & (1L << x)) != 0 ? value : 0;
+      }
+    }
+  }
+
+  /**
+   * Converts the plane into a {@link BufferedImage#TYPE_BYTE_BINARY} image by writing its raster directly.
+   */
+  public BufferedImage toBinaryImage() {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+    byte[] raster = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    int rowBytes = (width + 7) >>> 3;
+
+    for (int y = 0; y < height; y++) {
+      for (int b = 0; b < rowBytes; b++) {
+        long word = words[y * wordsPerRow + (b >>> 3)];
+        raster[y * rowBytes + b] = (byte) (Integer.reverse((int) (word >>> ((b & 7) << 3)) & 0xff) >>> 24);
+      }
+    }
+
+    return image;
+  }
+
+  /**
+   * Sets this plane to {@code first XOR second}, the pixels that differ between two masks.
+   *
+   * @return number of set pixels
+   */
+  public int xor(BitPlane first, BitPlane second) {
+    checkSize(first, second);
+    int count = 0;
+
+    for (int i = 0; i < words.length; i++) {
+      long word = first.words[i] ^ second.words[i];
+      words[i] = word;
+      count += Long.bitCount(word);
+    }
+
+    return count;
+  }
+
+  private void clearPadding() {
+    int tail = width & 63;
+    if (tail == 0) {
+      return;
+    }
+
+    long mask = (1L << tail) - 1;
+    for (int y = 0; y < height; y++) {
+      words[y * wordsPerRow + wordsPerRow - 1] &= mask;
+    }
+  }
+
+  private void checkSize(BitPlane first, BitPlane second) {
+    if (!hasSameSize(first) || !hasSameSize(second)) {
+      throw new IllegalArgumentException("Bit planes must have the same size");
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package image_plane;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Image plane backed by {@code byte[]}. Values are treated as unsigned 0-255, use {@link #get(int, int)} or mask
+ * with {@code 0xff} when reading {@link #getData()} directly.
+ */
+@Getter
+public class BytePlane extends Plane {
+
+  private final byte[] data;
+
+  public BytePlane(int width, int height) {
+    this(width, height, width);
+  }
+
+  public BytePlane(int width, int height, int stride) {
+    super(width, height, stride);
+    this.data = new byte[stride * height];
+  }
+
+  public int get(int x, int y) {
+    return data[y * stride + x] & 0xff;
+  }
+
+  public void set(int x, int y, int value) {
+    data[y * stride + x] = (byte) value;
+  }
+
+  public void fill(int value) {
+    Arrays.fill(data, (byte) value);
+  }
+
+  public void copyFrom(BytePlane source) {
+    for (int y = 0; y < height; y++) {
+      System.arraycopy(source.data, y * source.stride, data, y * stride, width);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package image_plane;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Image plane backed by {@code float[]}. Used for gradient magnitudes.
+ */
+@Getter
+public class FloatPlane extends Plane {
+
+  private final float[] data;
+
+  public FloatPlane(int width, int height) {
+    this(width, height, width);
+  }
+
+  public FloatPlane(int width, int height, int stride) {
+    super(width, height, stride);
+    this.data = new float[stride * height];
+  }
+
+  public float get(int x, int y) {
+    return data[y * stride + x];
+  }
+
+  public void set(int x, int y, float value) {
+    data[y * stride + x] = value;
+  }
+
+  public void fill(float value) {
+    Arrays.fill(data, value);
+  }
+
+  public void copyFrom(FloatPlane source) {
+    for (int y = 0; y < height; y++) {
+      System.arraycopy(source.data, y * source.stride, data, y * stride, width);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package image_plane;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Image plane backed by {@code int[]}. Used for grayscale, blurred and gradient values.
+ */
+@Getter
+public class IntPlane extends Plane {
+
+  private final int[] data;
+
+  public IntPlane(int width, int height) {
+    this(width, height, width);
+  }
+
+  public IntPlane(int width, int height, int stride) {
+    super(width, height, stride);
+    this.data = new int[stride * height];
+  }
+
+  public int get(int x, int y) {
+    return data[y * stride + x];
+  }
+
+  public void set(int x, int y, int value) {
+    data[y * stride + x] = value;
+  }
+
+  public void fill(int value) {
+    Arrays.fill(data, value);
+  }
+
+  public void copyFrom(IntPlane source) {
+    for (int y = 0; y < height; y++) {
+      System.arraycopy(source.data, y * source.stride, data, y * stride, width);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package image_plane;
+
+import lombok.Getter;
+
+/**
+ * Base class for flat single channel image planes. Pixels are stored row by row in one contiguous backing array, the
+ * pixel {@code (x, y)} lives at index {@code y * stride + x}.
+ */
+@Getter
+public abstract class Plane {
+
+  protected final int width;
+  protected final int height;
+  protected final int stride;
+
+  protected Plane(int width, int height, int stride) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Plane size must be positive: " + width + "x" + height);
+    }
+    if (stride < width) {
+      throw new IllegalArgumentException("Plane stride " + stride + " is less than width " + width);
+    }
+
+    this.width = width;
+    this.height = height;
+    this.stride = stride;
+  }
+
+  public int index(int x, int y) {
+    return y * stride + x;
+  }
+
+  public int size() {
+    return width * height;
+  }
+
+  public boolean hasSameSize(Plane other) {
+    return other != null && width == other.width && height == other.height;
+  }
+
+  public boolean hasSize(int width, int height) {
+    return this.width == width && this.height == height;
+  }
+}
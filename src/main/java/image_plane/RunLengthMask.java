@@ -0,0 +1,110 @@
+package image_plane;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Binary mask stored as horizontal runs of set pixels. Runs of row {@code y} are the indices
+ * {@code [getRowStart(y), getRowEnd(y))}, a run covers the columns {@code [getRunStart(i), getRunEnd(i))}. Runs are
+ * ordered by row and then by column, so iterating all runs visits set pixels in raster order. Sparse, horizontally
+ * coherent masks such as motion masks take a few runs per row instead of a value per pixel.
+ *
+ * <p>A mask is filled row by row with {@link #appendRow(byte[], int)} or {@link #addRun(int, int)} and
+ * {@link #endRow()} after {@link #reset(int, int)}, which keeps the allocated arrays.
+ */
+public class RunLengthMask {
+
+  @Getter
+  private int width;
+  @Getter
+  private int height;
+  @Getter
+  private int runCount;
+  private int rows;
+  private int[] rowOffsets = new int[1];
+  private int[] runStarts = new int[256];
+  private int[] runEnds = new int[256];
+
+  /**
+   * Empties the mask and sets its size, the next appended row is row 0.
+   */
+  public void reset(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Mask size must be positive: " + width + "x" + height);
+    }
+
+    this.width = width;
+    this.height = height;
+    if (rowOffsets.length < height + 1) {
+      rowOffsets = new int[height + 1];
+    }
+
+    rows = 0;
+    runCount = 0;
+    rowOffsets[0] = 0;
+  }
+
+  /**
+   * Adds the run {@code [fromX, toX)} to the current row. Runs of a row have to be added from left to right and must
+   * not touch each other.
+   */
+  public void addRun(int fromX, int toX) {
+    if (runCount == runStarts.length) {
+      runStarts = Arrays.copyOf(runStarts, runCount * 2);
+      runEnds = Arrays.copyOf(runEnds, runCount * 2);
+    }
+
+    runStarts[runCount] = fromX;
+    runEnds[runCount] = toX;
+    runCount++;
+  }
+
+  /**
+   * Finishes the current row, the following runs belong to the next one.
+   */
+  public void endRow() {
+    if (rows == height) {
+      throw new IllegalStateException("Mask already has all " + height + " rows");
+    }
+
+    rowOffsets[++rows] = runCount;
+  }
+
+  /**
+   * Appends one row of {@code width} pixels starting at {@code offset}, every non zero byte is set.
+   */
+  public void appendRow(byte[] data, int offset) {
+    int x = 0;
+
+    while (x < width) {
+      if (data[offset + x] == 0) {
+        x++;
+        continue;
+      }
+
+      int start = x;
+      while (x < width && data[offset + x] != 0) {
+        x++;
+      }
+      addRun(start, x);
+    }
+
+    endRow();
+  }
+
+  public int getRowStart(int y) {
+    return rowOffsets[y];
+  }
+
+  public int getRowEnd(int y) {
+    return rowOffsets[y + 1];
+  }
+
+  public int getRunStart(int run) {
+    return runStarts[run];
+  }
+
+  public int getRunEnd(int run) {
+    return runEnds[run];
+  }
+}
@@ -0,0 +1,185 @@
+package object_tracker;
+
+import contour_finder.Contour;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import utils.BoxGrid;
+
+/**
+ * Gives detections of consecutive frames persistent ids. Every frame the tracks are moved by their velocity, then each
+ * detection is paired with the tracks near it found through a {@link BoxGrid}, so matching stays near linear with
+ * hundreds of objects. Pairs are scored by intersection over union, or by centroid distance when the boxes do not
+ * overlap enough, and assigned greedily from the best score.
+ *
+ * <p>Tracks are born tentative and reported only after {@link TrackerParameters#getConfirmHits()} matches, a tentative
+ * track dies at its first miss. A confirmed track survives {@link TrackerParameters#getMaxMisses()} detections that
+ * did not match it at its predicted position. Frames without detection, see {@link #predict()}, are no misses.
+ */
+public class ObjectTracker {
+
+  private final TrackerParameters parameters;
+  private final BoxGrid grid;
+  private final int frameWidth;
+  private final int frameHeight;
+  private final List<Track> tracks = new ArrayList<>();
+  private int nextId = 1;
+
+  //Candidate pairs as cost bits in the high word and pair index in the low word, so sorting orders them by cost
+  private long[] candidates = new long[64];
+  private int[] candidateDetections = new int[64];
+  private int[] candidateTracks = new int[64];
+  private boolean[] detectionMatched = new boolean[64];
+  private boolean[] trackMatched = new boolean[64];
+
+  public ObjectTracker(TrackerParameters parameters, int frameWidth, int frameHeight) {
+    this.parameters = parameters;
+    this.grid = new BoxGrid(parameters.getCellSize());
+    this.frameWidth = frameWidth;
+    this.frameHeight = frameHeight;
+  }
+
+  /**
+   * Matches the detections of a new frame with the tracks and returns the confirmed tracks.
+   */
+  public List<Track> update(List<Contour> detections) {
+    for (Track track : tracks) {
+      track.predict();
+    }
+
+    int pairs = findCandidates(detections);
+    Arrays.sort(candidates, 0, pairs);
+
+    detectionMatched = clear(detectionMatched, detections.size());
+    trackMatched = clear(trackMatched, tracks.size());
+
+    for (int i = 0; i < pairs; i++) {
+      int pair = (int) candidates[i];
+      int detection = candidateDetections[pair];
+      int track = candidateTracks[pair];
+
+      if (!detectionMatched[detection] && !trackMatched[track]) {
+        detectionMatched[detection] = true;
+        trackMatched[track] = true;
+        tracks.get(track).update(detections.get(detection), parameters.getVelocitySmoothing());
+      }
+    }
+
+    for (int i = 0; i < tracks.size(); i++) {
+      if (!trackMatched[i]) {
+        tracks.get(i).miss();
+      }
+    }
+
+    removeLostTracks();
+
+    for (int i = 0; i < detections.size(); i++) {
+      if (!detectionMatched[i]) {
+        tracks.add(new Track(nextId++, detections.get(i)));
+      }
+    }
+
+    return getConfirmedTracks();
+  }
+
+  /**
+   * Advances a frame on which detection did not run: tracks are moved by their velocity. Nothing was searched, so no
+   * track counts a miss and none is born or dropped.
+   */
+  public List<Track> predict() {
+    for (Track track : tracks) {
+      track.predict();
+    }
+
+    return getConfirmedTracks();
+  }
+
+  public List<Track> getConfirmedTracks() {
+    List<Track> confirmed = new ArrayList<>();
+
+    for (Track track : tracks) {
+      if (track.isConfirmed(parameters.getConfirmHits())) {
+        confirmed.add(track);
+      }
+    }
+
+    return confirmed;
+  }
+
+  private int findCandidates(List<Contour> detections) {
+    grid.reset(frameWidth, frameHeight);
+    for (int i = 0; i < tracks.size(); i++) {
+      Track track = tracks.get(i);
+      grid.insert(i, (int) Math.floor(track.getMinX()), (int) Math.floor(track.getMinY()),
+          (int) Math.ceil(track.getMaxX()), (int) Math.ceil(track.getMaxY()));
+    }
+
+    double maxDistance = parameters.getMaxDistance();
+    int reach = (int) Math.ceil(maxDistance);
+    int pairs = 0;
+
+    for (int d = 0; d < detections.size(); d++) {
+      Contour detection = detections.get(d);
+      int found = grid.query(detection.getMinX() - reach, detection.getMinY() - reach,
+          detection.getMaxX() + reach, detection.getMaxY() + reach);
+
+      for (int i = 0; i < found; i++) {
+        int t = grid.getResult(i);
+        Track track = tracks.get(t);
+        double iou = track.iou(detection);
+        double cost;
+
+        if (iou >= parameters.getMinIou()) {
+          cost = 1 - iou;
+        } else {
+          double dx = track.getCenterX() - (detection.getMinX() + detection.getMaxX()) / 2.0;
+          double dy = track.getCenterY() - (detection.getMinY() + detection.getMaxY()) / 2.0;
+          double distance = Math.sqrt(dx * dx + dy * dy);
+
+          if (distance > maxDistance) {
+            continue;
+          }
+          //Every overlapping pair is preferred to every distant one
+          cost = 1 + distance / Math.max(maxDistance, 1);
+        }
+
+        if (pairs == candidates.length) {
+          candidates = Arrays.copyOf(candidates, pairs * 2);
+          candidateDetections = Arrays.copyOf(candidateDetections, pairs * 2);
+          candidateTracks = Arrays.copyOf(candidateTracks, pairs * 2);
+        }
+
+        candidateDetections[pairs] = d;
+        candidateTracks[pairs] = t;
+        //Non negative floats keep their order when compared as integers
+        candidates[pairs] = ((long) Float.floatToIntBits((float) cost) << 32) | pairs;
+        pairs++;
+      }
+    }
+
+    return pairs;
+  }
+
+  private void removeLostTracks() {
+    Iterator<Track> iterator = tracks.iterator();
+
+    while (iterator.hasNext()) {
+      Track track = iterator.next();
+      boolean confirmed = track.isConfirmed(parameters.getConfirmHits());
+
+      if (track.getMisses() > (confirmed ? parameters.getMaxMisses() : 0)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static boolean[] clear(boolean[] flags, int size) {
+    if (flags.length < size) {
+      return new boolean[Math.max(size, flags.length * 2)];
+    }
+
+    Arrays.fill(flags, 0, size, false);
+    return flags;
+  }
+}
@@ -0,0 +1,99 @@
+package object_tracker;
+
+import contour_finder.Contour;
+import lombok.Getter;
+
+/**
+ * Object followed across frames. The box is the last matched detection moved by the estimated velocity for every
+ * frame since, so it can be drawn on frames without detection.
+ */
+@Getter
+public class Track {
+
+  private final int id;
+  private double minX;
+  private double minY;
+  private double maxX;
+  private double maxY;
+  private double velocityX;   //Pixels per frame
+  private double velocityY;
+  private int hits;           //Frames matched with a detection
+  private int misses;         //Detections since the last match that did not match the track
+  private int predictedFrames; //Frames the box was moved by the velocity since the last match
+  private int pixelCount;     //Motion pixels of the last matched detection
+
+  Track(int id, Contour detection) {
+    this.id = id;
+    setBox(detection);
+    hits = 1;
+  }
+
+  public double getCenterX() {
+    return (minX + maxX) / 2;
+  }
+
+  public double getCenterY() {
+    return (minY + maxY) / 2;
+  }
+
+  public boolean isConfirmed(int confirmHits) {
+    return hits >= confirmHits;
+  }
+
+  /**
+   * Moves the box by the velocity for one frame.
+   */
+  void predict() {
+    minX += velocityX;
+    maxX += velocityX;
+    minY += velocityY;
+    maxY += velocityY;
+    predictedFrames++;
+  }
+
+  /**
+   * Replaces the predicted box with the matched detection and updates the velocity with the displacement measured
+   * since the previous match.
+   */
+  void update(Contour detection, double smoothing) {
+    int frames = Math.max(1, predictedFrames);
+    //Undo the prediction to get the center of the previous match
+    double previousX = getCenterX() - velocityX * frames;
+    double previousY = getCenterY() - velocityY * frames;
+
+    setBox(detection);
+
+    velocityX = smoothing * velocityX + (1 - smoothing) * (getCenterX() - previousX) / frames;
+    velocityY = smoothing * velocityY + (1 - smoothing) * (getCenterY() - previousY) / frames;
+    hits++;
+    misses = 0;
+    predictedFrames = 0;
+  }
+
+  void miss() {
+    misses++;
+  }
+
+  double iou(Contour detection) {
+    double width = Math.min(maxX, detection.getMaxX()) - Math.max(minX, detection.getMinX()) + 1;
+    double height = Math.min(maxY, detection.getMaxY()) - Math.max(minY, detection.getMinY()) + 1;
+
+    if (width <= 0 || height <= 0) {
+      return 0;
+    }
+
+    double intersection = width * height;
+    double area = (maxX - minX + 1) * (maxY - minY + 1);
+    double detectionArea = (double) detection.getWidth() * detection.getHeight();
+
+    return intersection / (area + detectionArea - intersection);
+  }
+
+  private void setBox(Contour detection) {
+    minX = detection.getMinX();
+    minY = detection.getMinY();
+    maxX = detection.getMaxX();
+    maxY = detection.getMaxY();
+    pixelCount = detection.getPixelCount();
+  }
+}
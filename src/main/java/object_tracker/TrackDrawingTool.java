@@ -0,0 +1,34 @@
+package object_tracker;
+
+import java.util.List;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+public class TrackDrawingTool {
+
+  private static final Scalar GREEN = new Scalar(0, 255, 0);
+
+  /**
+   * Draws the box of every track with its id above it.
+   */
+  public void drawTracks(Mat frame, List<Track> tracks) {
+    drawTracks(frame, tracks, 1);
+  }
+
+  /**
+   * Draws tracks found on a frame {@code scale} times smaller than {@code frame}, a pixel of the detection covers
+   * {@code scale x scale} pixels of the frame.
+   */
+  public void drawTracks(Mat frame, List<Track> tracks, int scale) {
+    for (Track track : tracks) {
+      //Box corners are inclusive, a coarse pixel covers scale x scale frame pixels
+      Imgproc.rectangle(frame, new Point(Math.round(track.getMinX() * scale), Math.round(track.getMinY() * scale)),
+          new Point(Math.round((track.getMaxX() + 1) * scale) - 1, Math.round((track.getMaxY() + 1) * scale) - 1),
+          GREEN, 1);
+      Imgproc.putText(frame, String.valueOf(track.getId()),
+          new Point(track.getMinX() * scale, track.getMinY() * scale - 2), Imgproc.FONT_HERSHEY_SIMPLEX, 0.4, GREEN, 1);
+    }
+  }
+}
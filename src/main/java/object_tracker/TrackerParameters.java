@@ -0,0 +1,24 @@
+package object_tracker;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+@Builder
+public class TrackerParameters {
+
+  @Builder.Default
+  private int cellSize = 64; //Side of the grid cells indexing tracks, about the size of a typical object
+  @Builder.Default
+  private double minIou = 0.1; //Intersection over union above which a detection matches a track
+  @Builder.Default
+  private double maxDistance = 40; //Largest centroid distance in pixels matching a detection without overlap
+  @Builder.Default
+  private int confirmHits = 3; //Matched frames before a new track is reported
+  @Builder.Default
+  private int maxMisses = 5; //Detections in a row a confirmed track may miss before it is dropped
+  @Builder.Default
+  private double velocitySmoothing = 0.5; //Weight of the previous velocity in the updated one
+}
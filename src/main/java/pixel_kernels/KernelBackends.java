@@ -0,0 +1,41 @@
+package pixel_kernels;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses the {@link PixelKernels} backend at runtime. The vector backend is used when it was compiled in (maven
+ * profile {@code vector}) and the JVM runs with {@code --add-modules jdk.incubator.vector}. Setting the system
+ * property {@code pixelKernels.scalar=true} forces the scalar backend, e.g. for comparisons.
+ */
+@Slf4j
+@UtilityClass
+public class KernelBackends {
+
+  private final String VECTOR_MODULE = "jdk.incubator.vector";
+  private final String VECTOR_BACKEND = "pixel_kernels.VectorPixelKernels";
+
+  private final PixelKernels SCALAR = new ScalarPixelKernels();
+  private final PixelKernels BEST = loadBest();
+
+  public PixelKernels best() {
+    return BEST;
+  }
+
+  private PixelKernels loadBest() {
+    if (Boolean.getBoolean("pixelKernels.scalar") || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+      return SCALAR;
+    }
+
+    try {
+      PixelKernels vector = (PixelKernels) Class.forName(VECTOR_BACKEND).getDeclaredConstructor().newInstance();
+      log.info("Using vectorized pixel kernels");
+
+      return vector;
+    } catch (ReflectiveOperationException | LinkageError e) {
+      log.debug("Vectorized pixel kernels are not available, using scalar ones", e);
+
+      return SCALAR;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package pixel_kernels;
+
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+
+/**
+ * Hot per-pixel loops of the detector. Every implementation must produce exactly the same values as
+ * {@link ScalarPixelKernels}, so backends can be swapped without changing detection results. Use
+ * {@link KernelBackends#best()} to get the fastest backend available on the running JVM.
+ */
+public interface PixelKernels {
+
+  /**
+   * Convolves the output rows {@code [fromRow, toRow)} with a 5x5 mask. The mask is anchored one pixel up and left of
+   * its center: {@code out(c - 1, r - 1) = sum(mask[kr + 1][kc + 1] * raw(c + kc, r + kr))} for {@code kr, kc} in
+   * {@code [-1, 3]}, {@code r} in {@code [3, height - 3)} and {@code c} in {@code [3, width - 3)}.
+   */
+  default void sobelRows(IntPlane raw, int[][] mask, ShortPlane out, int fromRow, int toRow) {
+    sobelRegion(raw, mask, out, fromRow, toRow, 0, out.getWidth());
+  }
+
+  /**
+   * Same as {@link #sobelRows(IntPlane, int[][], ShortPlane, int, int)} limited to the output columns
+   * {@code [fromCol, toCol)}.
+   */
+  void sobelRegion(IntPlane raw, int[][] mask, ShortPlane out, int fromRow, int toRow, int fromCol, int toCol);
+
+  /**
+   * Horizontal fixed-point convolution of the rows {@code [fromRow, toRow)} with the centered {@code taps}. Pixels
+   * outside of the image are replaced with the nearest border pixel, sums are rounded and shifted right by
+   * {@code shift}.
+   */
+  default void gaussianHorizontalRows(IntPlane raw, IntPlane out, int[] taps, int shift, int fromRow, int toRow) {
+    gaussianHorizontalRegion(raw, out, taps, shift, fromRow, toRow, 0, out.getWidth());
+  }
+
+  /**
+   * Same as {@link #gaussianHorizontalRows(IntPlane, IntPlane, int[], int, int, int)} limited to the output columns
+   * {@code [fromCol, toCol)}.
+   */
+  void gaussianHorizontalRegion(IntPlane raw, IntPlane out, int[] taps, int shift, int fromRow, int toRow,
+      int fromCol, int toCol);
+
+  /**
+   * Vertical counterpart of {@link #gaussianHorizontalRows(IntPlane, IntPlane, int[], int, int, int)}.
+   */
+  default void gaussianVerticalRows(IntPlane in, IntPlane out, int[] taps, int shift, int fromRow, int toRow) {
+    gaussianVerticalRegion(in, out, taps, shift, fromRow, toRow, 0, out.getWidth());
+  }
+
+  /**
+   * Same as {@link #gaussianVerticalRows(IntPlane, IntPlane, int[], int, int, int)} limited to the output columns
+   * {@code [fromCol, toCol)}.
+   */
+  void gaussianVerticalRegion(IntPlane in, IntPlane out, int[] taps, int shift, int fromRow, int toRow, int fromCol,
+      int toCol);
+}
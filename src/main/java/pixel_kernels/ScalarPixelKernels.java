@@ -0,0 +1,132 @@
+package pixel_kernels;
+
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+
+/**
+ * Plain Java implementation of {@link PixelKernels}. Always available and the reference for other backends.
+ */
+public class ScalarPixelKernels implements PixelKernels {
+
+  @Override
+  public void sobelRegion(IntPlane raw, int[][] mask, ShortPlane out, int fromRow, int toRow, int fromCol,
+      int toCol) {
+    int height = raw.getHeight();
+    int width = raw.getWidth();
+    int[] data = raw.getData();
+    int stride = raw.getStride();
+    short[] outData = out.getData();
+    int outStride = out.getStride();
+
+    int firstCol = Math.max(3, fromCol + 1);
+    int lastCol = Math.min(width - 3, toCol + 1);
+
+    for (int r = Math.max(3, fromRow + 1); r < Math.min(height - 3, toRow + 1); r++) {
+      int outRow = (r - 1) * outStride - 1;
+
+      for (int c = firstCol; c < lastCol; c++) {
+        int sum = 0;
+
+        for (int kr = -1; kr < 4; kr++) {
+          int row = (r + kr) * stride + c;
+          int[] maskRow = mask[kr + 1];
+
+          for (int kc = -1; kc < 4; kc++) {
+            sum += maskRow[kc + 1] * data[row + kc];
+          }
+        }
+
+        outData[outRow + c] = (short) sum;
+      }
+    }
+  }
+
+  @Override
+  public void gaussianHorizontalRegion(IntPlane raw, IntPlane out, int[] taps, int shift, int fromRow, int toRow,
+      int fromCol, int toCol) {
+    int kernelRadius = taps.length / 2;
+    int rounding = 1 << (shift - 1);
+    int width = raw.getWidth();
+    int[] in = raw.getData();
+    int inStride = raw.getStride();
+    int[] outData = out.getData();
+    int outStride = out.getStride();
+    int innerFrom = Math.min(kernelRadius, width);
+    int innerTo = Math.max(innerFrom, width - kernelRadius);
+
+    for (int r = fromRow; r < toRow; r++) {
+      int inRow = r * inStride;
+      int outRow = r * outStride;
+
+      for (int c = fromCol; c < Math.min(toCol, innerFrom); c++) {
+        outData[outRow + c] = clampedHorizontalSum(in, inRow, width, c, taps, shift);
+      }
+
+      for (int c = Math.max(fromCol, innerFrom); c < Math.min(toCol, innerTo); c++) {
+        int start = inRow + c - kernelRadius;
+        int sum = rounding;
+
+        for (int k = 0; k < taps.length; k++) {
+          sum += taps[k] * in[start + k];
+        }
+
+        outData[outRow + c] = sum >> shift;
+      }
+
+      for (int c = Math.max(fromCol, innerTo); c < toCol; c++) {
+        outData[outRow + c] = clampedHorizontalSum(in, inRow, width, c, taps, shift);
+      }
+    }
+  }
+
+  /**
+   * The output row itself is used as the accumulator, so the taps are applied with linear access over whole rows.
+   */
+  @Override
+  public void gaussianVerticalRegion(IntPlane in, IntPlane out, int[] taps, int shift, int fromRow, int toRow,
+      int fromCol, int toCol) {
+    int kernelRadius = taps.length / 2;
+    int rounding = 1 << (shift - 1);
+    int height = in.getHeight();
+    int[] inData = in.getData();
+    int inStride = in.getStride();
+    int[] outData = out.getData();
+    int outStride = out.getStride();
+
+    for (int r = fromRow; r < toRow; r++) {
+      int outRow = r * outStride;
+
+      for (int c = fromCol; c < toCol; c++) {
+        outData[outRow + c] = rounding;
+      }
+
+      for (int k = 0; k < taps.length; k++) {
+        int tap = taps[k];
+        int inRow = clamp(r + k - kernelRadius, height) * inStride;
+
+        for (int c = fromCol; c < toCol; c++) {
+          outData[outRow + c] += tap * inData[inRow + c];
+        }
+      }
+
+      for (int c = fromCol; c < toCol; c++) {
+        outData[outRow + c] >>= shift;
+      }
+    }
+  }
+
+  static int clampedHorizontalSum(int[] in, int inRow, int width, int c, int[] taps, int shift) {
+    int kernelRadius = taps.length / 2;
+    int sum = 1 << (shift - 1);
+
+    for (int k = 0; k < taps.length; k++) {
+      sum += taps[k] * in[inRow + clamp(c + k - kernelRadius, width)];
+    }
+
+    return sum >> shift;
+  }
+
+  static int clamp(int value, int size) {
+    return value < 0 ? 0 : (value >= size ? size - 1 : value);
+  }
+}
@@ -0,0 +1,121 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a frame indexing axis aligned boxes by the cells they cover. A query visits only the cells of the
+ * queried area, so finding the boxes near one box stays cheap with thousands of boxes in the frame. Boxes are
+ * identified by a non negative id, inclusive pixel coordinates outside of the frame are clamped to the border cells.
+ * All storage is primitive and kept between {@link #reset(int, int)} calls.
+ */
+public class BoxGrid {
+
+  private final int cellSize;
+  private int columns;
+  private int rows;
+  private int[] cellHeads = new int[0];   //First entry of every cell, -1 for an empty cell
+  private int[] entryNext = new int[64];
+  private int[] entryIds = new int[64];
+  private int entryCount;
+
+  private int[] queryMarks = new int[64];  //Query stamp per id, so an id covering several cells is reported once
+  private int queryStamp;
+  private int[] result = new int[64];
+
+  public BoxGrid(int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+    }
+
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Removes all boxes and sizes the grid for a frame of {@code width x height} pixels.
+   */
+  public void reset(int width, int height) {
+    columns = Math.max(1, (width + cellSize - 1) / cellSize);
+    rows = Math.max(1, (height + cellSize - 1) / cellSize);
+
+    if (cellHeads.length < columns * rows) {
+      cellHeads = new int[columns * rows];
+    }
+
+    Arrays.fill(cellHeads, 0, columns * rows, -1);
+    entryCount = 0;
+  }
+
+  public void insert(int id, int minX, int minY, int maxX, int maxY) {
+    if (id >= queryMarks.length) {
+      queryMarks = Arrays.copyOf(queryMarks, Math.max(id + 1, queryMarks.length * 2));
+    }
+
+    int fromColumn = column(minX);
+    int toColumn = column(maxX);
+    int fromRow = row(minY);
+    int toRow = row(maxY);
+
+    for (int r = fromRow; r <= toRow; r++) {
+      for (int c = fromColumn; c <= toColumn; c++) {
+        if (entryCount == entryIds.length) {
+          entryIds = Arrays.copyOf(entryIds, entryCount * 2);
+          entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+
+        int cell = r * columns + c;
+        entryIds[entryCount] = id;
+        entryNext[entryCount] = cellHeads[cell];
+        cellHeads[cell] = entryCount++;
+      }
+    }
+  }
+
+  /**
+   * Collects the ids of all boxes sharing a cell with the given area, each id once. The ids are read with
+   * {@link #getResult(int)} until the next query.
+   *
+   * @return number of ids found
+   */
+  public int query(int minX, int minY, int maxX, int maxY) {
+    if (++queryStamp == 0) {
+      Arrays.fill(queryMarks, 0);
+      queryStamp = 1;
+    }
+
+    int count = 0;
+    int toColumn = column(maxX);
+    int toRow = row(maxY);
+
+    for (int r = row(minY); r <= toRow; r++) {
+      for (int c = column(minX); c <= toColumn; c++) {
+        for (int entry = cellHeads[r * columns + c]; entry >= 0; entry = entryNext[entry]) {
+          int id = entryIds[entry];
+
+          if (queryMarks[id] == queryStamp) {
+            continue;
+          }
+
+          queryMarks[id] = queryStamp;
+          if (count == result.length) {
+            result = Arrays.copyOf(result, count * 2);
+          }
+          result[count++] = id;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  public int getResult(int index) {
+    return result[index];
+  }
+
+  private int column(int x) {
+    return Math.max(0, Math.min(columns - 1, Math.floorDiv(x, cellSize)));
+  }
+
+  private int row(int y) {
+    return Math.max(0, Math.min(rows - 1, Math.floorDiv(y, cellSize)));
+  }
+}
@@ -0,0 +1,171 @@
+package utils;
+
+import static org.opencv.core.CvType.CV_8U;
+import static org.opencv.core.CvType.CV_8UC1;
+import static org.opencv.core.CvType.CV_8UC3;
+
+import image_plane.BitPlane;
+import image_plane.RunLengthMask;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Moves frames between OpenCV matrices, images and planes by copying raw bytes. An 8 bit BGR matrix has the byte
+ * layout of a {@link BufferedImage#TYPE_3BYTE_BGR} raster and a single channel one that of a
+ * {@link BufferedImage#TYPE_BYTE_GRAY} raster, so a conversion is one bulk {@code Mat.get} or {@code Mat.put}.
+ *
+ * <p>Results and scratch buffers are kept between calls with frames of the same size: an object returned by a method
+ * is overwritten by the next call of the same method. Use one converter per thread.
+ */
+public class FrameConverter {
+
+  private BufferedImage image;
+  private Mat grayscaleMat;
+  private Mat maskMat;
+  private byte[] maskBytes = new byte[0];
+  private RunLengthMask runLengthMask;
+  private final Mat scratch = new Mat();   //BGR input of toGrayscaleMat and continuous copies of matrix views
+
+  /**
+   * Copies an 8 bit matrix with one or three channels into a {@link BufferedImage#TYPE_BYTE_GRAY} or
+   * {@link BufferedImage#TYPE_3BYTE_BGR} image.
+   */
+  public BufferedImage toImage(Mat matrix) {
+    int type;
+    if (matrix.type() == CV_8UC1) {
+      type = BufferedImage.TYPE_BYTE_GRAY;
+    } else if (matrix.type() == CV_8UC3) {
+      type = BufferedImage.TYPE_3BYTE_BGR;
+    } else {
+      throw new IllegalArgumentException("Unsupported matrix type " + matrix);
+    }
+
+    if (image == null || image.getType() != type || image.getWidth() != matrix.cols()
+        || image.getHeight() != matrix.rows()) {
+      image = new BufferedImage(matrix.cols(), matrix.rows(), type);
+    }
+
+    continuous(matrix).get(0, 0, raster(image));
+
+    return image;
+  }
+
+  /**
+   * Copies an image into a single channel 8 bit matrix of its gray levels. Gray and binary images are copied as they
+   * are, other images are converted with the OpenCV luma weights.
+   */
+  public Mat toGrayscaleMat(BufferedImage source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    grayscaleMat = prepare(grayscaleMat, width, height);
+
+    switch (source.getType()) {
+      case BufferedImage.TYPE_BYTE_GRAY:
+        grayscaleMat.put(0, 0, raster(source));
+        return grayscaleMat;
+      case BufferedImage.TYPE_BYTE_BINARY:
+        if (source.getColorModel().getPixelSize() == 1) {
+          return toMat(BitPlane.of(source));
+        }
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+        scratch.create(height, width, CV_8UC3);
+        scratch.put(0, 0, raster(source));
+        Imgproc.cvtColor(scratch, grayscaleMat, Imgproc.COLOR_BGR2GRAY);
+        return grayscaleMat;
+      default:
+        break;
+    }
+
+    BufferedImage converted = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    converted.getGraphics().drawImage(source, 0, 0, null);
+
+    return toGrayscaleMat(converted);
+  }
+
+  /**
+   * Unpacks a bit plane into a single channel 8 bit matrix with 255 for set pixels.
+   */
+  public Mat toMat(BitPlane mask) {
+    int size = mask.getWidth() * mask.getHeight();
+    if (maskBytes.length != size) {
+      maskBytes = new byte[size];
+    }
+
+    maskMat = prepare(maskMat, mask.getWidth(), mask.getHeight());
+    mask.unpack(maskBytes, (byte) 255);
+    maskMat.put(0, 0, maskBytes);
+
+    return maskMat;
+  }
+
+  /**
+   * Run length encodes the non zero pixels of a single channel 8 bit matrix.
+   */
+  public RunLengthMask toRunLengthMask(Mat matrix) {
+    if (matrix.channels() != 1 || matrix.depth() != CV_8U) {
+      throw new IllegalArgumentException("Mask must be a single channel 8 bit matrix, got " + matrix);
+    }
+
+    int width = matrix.cols();
+    int height = matrix.rows();
+    if (maskBytes.length != width * height) {
+      maskBytes = new byte[width * height];
+    }
+    if (runLengthMask == null) {
+      runLengthMask = new RunLengthMask();
+    }
+
+    continuous(matrix).get(0, 0, maskBytes);
+    runLengthMask.reset(width, height);
+
+    for (int y = 0; y < height; y++) {
+      runLengthMask.appendRow(maskBytes, y * width);
+    }
+
+    return runLengthMask;
+  }
+
+  /**
+   * Frees the native memory of the matrices kept between calls. A released converter may still be used, it allocates
+   * them again.
+   */
+  public void release() {
+    if (grayscaleMat != null) {
+      grayscaleMat.release();
+      grayscaleMat = null;
+    }
+    if (maskMat != null) {
+      maskMat.release();
+      maskMat = null;
+    }
+    scratch.release();
+  }
+
+  private static Mat prepare(Mat matrix, int width, int height) {
+    if (matrix == null || matrix.cols() != width || matrix.rows() != height) {
+      if (matrix != null) {
+        matrix.release();
+      }
+      return new Mat(height, width, CV_8UC1);
+    }
+
+    return matrix;
+  }
+
+  //Bulk copies need the rows of a matrix to follow each other, views into bigger matrices are copied first
+  private Mat continuous(Mat matrix) {
+    if (matrix.isContinuous()) {
+      return matrix;
+    }
+
+    matrix.copyTo(scratch);
+    return scratch;
+  }
+
+  private static byte[] raster(BufferedImage image) {
+    return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+  }
+}
@@ -1,20 +1,11 @@
 package utils;
 
-import static org.opencv.core.CvType.CV_8UC1;
-import static org.opencv.imgproc.Imgproc.INTER_AREA;
-
+import image_plane.IntPlane;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.util.LinkedList;
-import java.util.List;
-import javax.imageio.ImageIO;
-import lombok.SneakyThrows;
+import java.awt.image.DataBufferByte;
 import lombok.experimental.UtilityClass;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfByte;
 import org.opencv.core.Size;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
 @UtilityClass
@@ -52,59 +43,120 @@ public class ImageUtils {
     return gs;
   }
 
-  public Mat resizeFrameIfNeeded(Mat frame, Size neededFrameSize) {
-    Size currentFrameSize = frame.size();
-
-    if (currentFrameSize.width > neededFrameSize.width || currentFrameSize.height > neededFrameSize.height) {
-      Mat resizedFrame = new Mat();
-      Imgproc.resize(frame, resizedFrame, neededFrameSize, 0, 0, INTER_AREA);
+  /**
+   * Same as {@link #rgbImageToGrayscaleArrayOfPixels(BufferedImage)} but writes into a flat plane. The plane is reused
+   * when it already has the size of the image, otherwise a new one is allocated.
+   *
+   * @param img BufferedImage, the input image from which to extract grayscale
+   * @param gs  IntPlane to fill, may be {@code null}
+   * @return plane of grayscale pixel values from image.
+   */
+  public IntPlane rgbImageToGrayscalePlane(BufferedImage img, IntPlane gs) {
+    int height = img.getHeight();
+    int width = img.getWidth();
 
-      return resizedFrame;
+    if (gs == null || !gs.hasSize(width, height)) {
+      gs = new IntPlane(width, height);
     }
 
-    return frame;
-  }
+    int[] data = gs.getData();
+    int stride = gs.getStride();
+
+    //Decoded video frames are BGR bytes, which are read straight from the raster
+    if (img.getType() == BufferedImage.TYPE_3BYTE_BGR && img.getRaster().getParent() == null) {
+      byte[] bgr = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
 
-  public BufferedImage getImageAbsDiff(LinkedList<BufferedImage> prevFrames) {
-    int width = prevFrames.get(0).getWidth();
-    int height = prevFrames.get(0).getHeight();
-    BufferedImage outImg =
-        new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+      for (int i = 0; i < height; i++) {
+        int offset = i * stride;
+        int pixel = i * width * 3;
+
+        for (int j = 0; j < width; j++, pixel += 3) {
+          int sum = (bgr[pixel] & CONS_255) + (bgr[pixel + 1] & CONS_255) + (bgr[pixel + 2] & CONS_255);
+          data[offset + j] = (sum + 1) / 3;    //Same as Math.round(sum / 3.0)
+        }
+      }
+
+      return gs;
+    }
+
+    int[] row = new int[width];
 
     for (int i = 0; i < height; i++) {
+      img.getRGB(0, i, width, 1, row, 0, width);
+      int offset = i * stride;
+
       for (int j = 0; j < width; j++) {
+        int pixel = row[j];
 
-        int rgb1 = prevFrames.getFirst().getRGB(j, i);
-        int rgb4 = prevFrames.getLast().getRGB(j, i);
+        int r = (pixel >> 16) & CONS_255;
+        int g = (pixel >> 8) & CONS_255;
+        int b = pixel & CONS_255;
 
-        int v1 = (rgb1) & 0xff;
-        int v2 = (rgb4) & 0xff;
+        data[offset + j] = (int) Math.round((r + g + b) / 3.0);
+      }
+    }
 
-        int diff = v1 == v2 ? 0 : 255;
+    return gs;
+  }
 
-        outImg.setRGB(j, i, (diff << 16) | (diff << 8) | diff);
+  /**
+   * Returns the level of a Gaussian pyramid built with {@link Imgproc#pyrDown}, every level halves both sides.
+   * Level 0 returns the frame itself, otherwise a new Mat.
+   */
+  public Mat pyramidLevel(Mat frame, int level) {
+    Mat current = frame;
+    for (int i = 0; i < level; i++) {
+      Mat down = new Mat();
+      Imgproc.pyrDown(current, down);
+      if (current != frame) {
+        current.release();
       }
+      current = down;
     }
 
-    // Now return
-    return outImg;
+    return current;
   }
 
-  @SneakyThrows
-  public Mat bufferedImage2Mat(BufferedImage in) {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    ImageIO.write(in, "png", byteArrayOutputStream);
-    byteArrayOutputStream.flush();
+  /**
+   * Size of the pyramid level {@code level} of a frame of {@code frameSize}.
+   */
+  public Size pyramidLevelSize(Size frameSize, int level) {
+    int width = (int) frameSize.width;
+    int height = (int) frameSize.height;
+    for (int i = 0; i < level; i++) {
+      width = (width + 1) / 2;
+      height = (height + 1) / 2;
+    }
 
-    return Imgcodecs.imdecode(new MatOfByte(byteArrayOutputStream.toByteArray()), CV_8UC1);
+    return new Size(width, height);
   }
 
-  @SneakyThrows
-  public BufferedImage mat2BufferedImage(Mat matrix) {
-    MatOfByte mob = new MatOfByte();
-    Imgcodecs.imencode(".png", matrix, mob);
-    byte[] ba = mob.toArray();
+  /**
+   * Lowest pyramid level that fits into {@code maxSize}, a single pixel is the top of the pyramid.
+   */
+  public int pyramidLevelFitting(Size frameSize, Size maxSize) {
+    int level = 0;
+    Size size = frameSize;
+    while ((size.width > maxSize.width || size.height > maxSize.height) && (size.width > 1 || size.height > 1)) {
+      size = pyramidLevelSize(frameSize, ++level);
+    }
+
+    return level;
+  }
 
-    return ImageIO.read(new ByteArrayInputStream(ba));
+  /**
+   * Copies an image into a single channel 8 bit matrix of its gray levels, see
+   * {@link FrameConverter#toGrayscaleMat(BufferedImage)}. The matrix belongs to {@code converter}.
+   */
+  public Mat bufferedImage2Mat(BufferedImage in, FrameConverter converter) {
+    return converter.toGrayscaleMat(in);
+  }
+
+  /**
+   * Copies an 8 bit matrix into an image with the same bytes, see {@link FrameConverter#toImage(Mat)}. The image
+   * belongs to {@code converter}.
+   */
+  public BufferedImage mat2BufferedImage(Mat matrix, FrameConverter converter) {
+    return converter.toImage(matrix);
   }
 }
@@ -0,0 +1,81 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Splits a range of image rows into horizontal strips and runs an action for every strip on a fork/join pool.
+ */
+@UtilityClass
+public class RowStrips {
+
+  private final int MIN_STRIP_HEIGHT = 8;
+
+  /**
+   * Action applied to the rows {@code [fromRow, toRow)} of one strip.
+   */
+  @FunctionalInterface
+  public interface RowRangeAction {
+
+    void apply(int fromRow, int toRow);
+  }
+
+  /**
+   * Action applied to the rows {@code [fromRow, toRow)} of the strip with index {@code strip}, for callers that keep
+   * per strip partial results.
+   */
+  @FunctionalInterface
+  public interface IndexedRowRangeAction {
+
+    void apply(int strip, int fromRow, int toRow);
+  }
+
+  /**
+   * Number of strips to cut {@code rows} into for the given parallelism. A few strips more than threads are used so
+   * that uneven strips are balanced by work stealing.
+   */
+  public int stripCount(int rows, int parallelism) {
+    if (parallelism <= 1) {
+      return 1;
+    }
+
+    return Math.max(1, Math.min(parallelism * 4, rows / MIN_STRIP_HEIGHT));
+  }
+
+  /**
+   * Runs {@code action} for every strip of {@code [0, rows)} and waits until all strips are done. Runs on the calling
+   * thread when there is no pool or only one strip.
+   */
+  public void forEachStrip(ForkJoinPool pool, int rows, int strips, RowRangeAction action) {
+    forEachStrip(pool, rows, strips, (strip, fromRow, toRow) -> action.apply(fromRow, toRow));
+  }
+
+  /**
+   * Same as {@link #forEachStrip(ForkJoinPool, int, int, RowRangeAction)} but passes the strip index
+   * {@code [0, strips)} to the action. Without a pool everything is one strip with index 0.
+   */
+  public void forEachStrip(ForkJoinPool pool, int rows, int strips, IndexedRowRangeAction action) {
+    if (pool == null || strips <= 1) {
+      action.apply(0, 0, rows);
+      return;
+    }
+
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(strips);
+    for (int i = 0; i < strips; i++) {
+      int strip = i;
+      int fromRow = stripStart(rows, strips, i);
+      int toRow = stripStart(rows, strips, i + 1);
+
+      tasks.add(ForkJoinTask.adapt(() -> action.apply(strip, fromRow, toRow)));
+    }
+
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+  }
+
+  public int stripStart(int rows, int strips, int strip) {
+    return (int) ((long) rows * strip / strips);
+  }
+}
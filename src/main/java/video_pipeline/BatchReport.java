@@ -0,0 +1,27 @@
+package video_pipeline;
+
+import java.io.File;
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Totals of one {@link BatchRunner#run} over many videos.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BatchReport {
+
+  private final int processedFiles; //Files that were finished, including failed ones
+  private final List<File> failedFiles;
+  private final long writtenFrames;
+  private final long elapsedNanos;
+
+  public double getFramesPerSecond() {
+    return elapsedNanos == 0 ? 0 : writtenFrames * 1e9 / elapsedNanos;
+  }
+
+  public double getFilesPerSecond() {
+    return elapsedNanos == 0 ? 0 : processedFiles * 1e9 / elapsedNanos;
+  }
+}
@@ -0,0 +1,156 @@
+package video_pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Processes many videos, {@code parallelFiles} of them at a time. Frames of all running videos are detected by the
+ * workers of the {@link VideoFileProcessor}, so the number of detection threads stays bounded however many files run.
+ * A file that fails is logged and reported, the other files are processed anyway.
+ */
+@Slf4j
+public class BatchRunner {
+
+  private static final Set<String> VIDEO_EXTENSIONS = new HashSet<>(
+      Arrays.asList("avi", "mp4", "m4v", "mov", "mkv", "mpg", "mpeg", "wmv", "webm", "ts", "flv", "3gp"));
+  private static final Set<String> MANIFEST_EXTENSIONS = new HashSet<>(Arrays.asList("txt", "lst"));
+  private static final String OUTPUT_SUFFIX = "_result";
+  private static final String EVENTS_EXTENSION = ".jsonl";
+
+  private final VideoFileProcessor processor;
+  private final int parallelFiles;
+
+  public BatchRunner(VideoFileProcessor processor, int parallelFiles) {
+    this.processor = processor;
+    this.parallelFiles = Math.max(1, parallelFiles);
+  }
+
+  /**
+   * Videos of a directory sorted by name, or the files listed in a manifest with one path per line. Relative paths of
+   * a manifest are resolved against its directory, blank lines and lines starting with {@code #} are skipped.
+   */
+  public static List<File> listInputs(File source) throws IOException {
+    List<File> inputs = new ArrayList<>();
+
+    if (source.isDirectory()) {
+      File[] files = source.listFiles(file -> file.isFile() && isVideo(file));
+      if (files != null) {
+        Arrays.sort(files);
+        Collections.addAll(inputs, files);
+      }
+      return inputs;
+    }
+
+    for (String line : Files.readAllLines(source.toPath(), StandardCharsets.UTF_8)) {
+      String path = line.trim();
+      if (path.isEmpty() || path.startsWith("#")) {
+        continue;
+      }
+
+      File file = new File(path);
+      inputs.add(file.isAbsolute() ? file : new File(source.getAbsoluteFile().getParentFile(), path));
+    }
+    return inputs;
+  }
+
+  /**
+   * Manifests are told by their extension, anything else is left to {@link org.opencv.videoio.VideoCapture}.
+   */
+  public static boolean isManifest(File file) {
+    return MANIFEST_EXTENSIONS.contains(extension(file.getName()));
+  }
+
+  public BatchReport run(List<File> inputs, File outputDirectory) throws IOException, InterruptedException {
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+      throw new IOException("Can't create output directory " + outputDirectory);
+    }
+
+    List<File> outputs = outputFiles(inputs, outputDirectory, processor.isHeadless());
+    List<File> failed = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger processed = new AtomicInteger();
+    AtomicLong frames = new AtomicLong();
+
+    ExecutorService files = Executors.newFixedThreadPool(parallelFiles);
+    long start = System.nanoTime();
+    try {
+      List<Future<?>> jobs = new ArrayList<>();
+      for (int i = 0; i < inputs.size(); i++) {
+        File input = inputs.get(i);
+        File output = outputs.get(i);
+        jobs.add(files.submit(() -> {
+          try {
+            PipelineReport report = processor.process(input.getPath(), output, false);
+            frames.addAndGet(report.getWrittenFrames());
+            log.info("[{}/{}] {} -> {}: {} frames, {}% skipped detection", processed.incrementAndGet(), inputs.size(),
+                input, output.getName(), report.getWrittenFrames(), Math.round(report.getSkipRatio() * 100));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (IOException | ExecutionException | RuntimeException e) {
+            failed.add(input);
+            log.error("[{}/{}] {} failed", processed.incrementAndGet(), inputs.size(), input, e);
+          }
+        }));
+      }
+
+      for (Future<?> job : jobs) {
+        try {
+          job.get();
+        } catch (ExecutionException e) {
+          //Jobs catch their own failures, this is an Error that should stop the batch
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+    } finally {
+      files.shutdownNow();
+    }
+
+    return new BatchReport(processed.get(), new ArrayList<>(failed), frames.get(), System.nanoTime() - start);
+  }
+
+  /**
+   * Names outputs after their inputs, inputs with the same name from different directories get a counter.
+   */
+  private static List<File> outputFiles(List<File> inputs, File outputDirectory, boolean headless) {
+    List<File> outputs = new ArrayList<>(inputs.size());
+    Set<String> used = new HashSet<>();
+
+    for (File input : inputs) {
+      String name = input.getName();
+      int dot = name.lastIndexOf('.');
+      String base = (dot > 0 ? name.substring(0, dot) : name) + OUTPUT_SUFFIX;
+      String extension = headless ? EVENTS_EXTENSION : dot > 0 ? name.substring(dot) : ".mp4";
+
+      String candidate = base + extension;
+      for (int copy = 2; !used.add(candidate.toLowerCase(Locale.ROOT)); copy++) {
+        candidate = base + "_" + copy + extension;
+      }
+      outputs.add(new File(outputDirectory, candidate));
+    }
+    return outputs;
+  }
+
+  private static boolean isVideo(File file) {
+    return VIDEO_EXTENSIONS.contains(extension(file.getName()));
+  }
+
+  private static String extension(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+  }
+}
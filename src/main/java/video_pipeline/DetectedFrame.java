@@ -0,0 +1,20 @@
+package video_pipeline;
+
+import image_plane.BitPlane;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.opencv.core.Mat;
+
+/**
+ * Decoded frame with its edge map, {@code null} edges mark a frame that skipped detection. Idle frames were stopped by
+ * the {@link MotionGate} and are drawn with the current tracks without running the tracker.
+ */
+@Getter
+@RequiredArgsConstructor
+class DetectedFrame {
+
+  private final int index;
+  private final Mat frame;
+  private final BitPlane edges;
+  private final boolean idle;
+}
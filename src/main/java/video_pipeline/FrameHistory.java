@@ -0,0 +1,53 @@
+package video_pipeline;
+
+import image_plane.BitPlane;
+
+/**
+ * Circular history of the last edge maps. Slots are allocated once for the frame size and overwritten in place, so
+ * memory stays constant however long the video is, and the oldest and the newest map are found in constant time.
+ *
+ * <p>Only detected frames are pushed. Frames shed by the rate controller or skipped by the motion gate leave the
+ * history as it is, so it covers more frames of the video than its depth while detections are spaced out.
+ */
+class FrameHistory {
+
+  private final BitPlane[] slots;
+  private int newest = -1;
+  private int size;
+
+  FrameHistory(int depth) {
+    if (depth < 2) {
+      throw new IllegalArgumentException("History needs at least two frames to diff, got " + depth);
+    }
+
+    slots = new BitPlane[depth];
+  }
+
+  /**
+   * Copies {@code edges} into the slot of the oldest map, which is dropped once the history is full.
+   */
+  void push(BitPlane edges) {
+    newest = (newest + 1) % slots.length;
+
+    BitPlane slot = slots[newest];
+    if (slot == null || !slot.hasSameSize(edges)) {
+      slot = new BitPlane(edges.getWidth(), edges.getHeight());
+      slots[newest] = slot;
+    }
+
+    slot.copyFrom(edges);
+    size = Math.min(size + 1, slots.length);
+  }
+
+  boolean isFull() {
+    return size == slots.length;
+  }
+
+  BitPlane getNewest() {
+    return slots[newest];
+  }
+
+  BitPlane getOldest() {
+    return slots[(newest - size + 1 + slots.length) % slots.length];
+  }
+}
@@ -0,0 +1,96 @@
+package video_pipeline;
+
+import static org.opencv.core.CvType.CV_8UC1;
+
+import contour_finder.BoxMerger;
+import contour_finder.Contour;
+import contour_finder.ContoursFinder;
+import image_plane.BitPlane;
+import image_plane.RunLengthMask;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import object_tracker.ObjectTracker;
+import object_tracker.Track;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import utils.FrameConverter;
+
+/**
+ * Sequential part of the pipeline: diffs the edge maps of the last {@link PipelineParameters#getDiffFramesCount()}
+ * frames, cleans the difference with morphology, finds and merges motion contours and tracks them. Frames have to be
+ * passed in decoding order.
+ */
+class MotionAnnotator {
+
+  private final FrameHistory history;
+  private final ContoursFinder contoursFinder;
+  private final BoxMerger boxMerger;
+  private final ObjectTracker tracker;
+  private final FrameConverter frameConverter = new FrameConverter();
+  private final Mat morphingMatrix = new Mat(new Size(2, 2), CV_8UC1, new Scalar(255));
+  private final Mat dilateKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+  private final Mat clearMat = new Mat();
+  private final Mat dilate = new Mat();
+  private BitPlane differenceMask;
+
+  /**
+   * @param labelPool pool labeling strips of the motion mask, {@code null} labels on the calling thread
+   */
+  MotionAnnotator(PipelineParameters parameters, int frameWidth, int frameHeight, ForkJoinPool labelPool) {
+    this.history = new FrameHistory(parameters.getDiffFramesCount());
+    this.contoursFinder = new ContoursFinder(parameters.getMinFragmentPixels(), labelPool);
+    this.boxMerger = new BoxMerger(parameters.getMergeGap(), parameters.getMinObjectPixels(), frameWidth, frameHeight);
+    this.tracker = new ObjectTracker(parameters.getTrackerParameters(), frameWidth, frameHeight);
+  }
+
+  /**
+   * Returns the tracks to draw on the frame, or {@code null} while edge maps for the first diff are collected.
+   */
+  List<Track> annotate(DetectedFrame frame) {
+    if (frame.getEdges() == null) {
+      return tracker.predict();
+    }
+
+    history.push(frame.getEdges());
+    if (!history.isFull()) {
+      return null;
+    }
+
+    //Motion is what changed between the oldest and the newest edge map of the history
+    BitPlane oldest = history.getOldest();
+    if (differenceMask == null || !differenceMask.hasSameSize(oldest)) {
+      differenceMask = new BitPlane(oldest.getWidth(), oldest.getHeight());
+    }
+    differenceMask.xor(oldest, history.getNewest());
+    Mat frameDelta = frameConverter.toMat(differenceMask);
+
+    //Suppressed edges are one pixel wide, they are grown first so the opening only removes isolated specks
+    Imgproc.dilate(frameDelta, dilate, dilateKernel);
+    Imgproc.morphologyEx(dilate, clearMat, Imgproc.MORPH_OPEN, morphingMatrix);
+
+    RunLengthMask motionMask = frameConverter.toRunLengthMask(clearMat);
+    List<Contour> contours = contoursFinder.findContours(motionMask);
+
+    return tracker.update(boxMerger.merge(contours));
+  }
+
+  /**
+   * Returns the confirmed tracks as they are, for frames the motion gate found unchanged.
+   */
+  List<Track> currentTracks() {
+    return tracker.getConfirmedTracks();
+  }
+
+  /**
+   * Frees the native memory of the matrices, the annotator can not be used afterwards.
+   */
+  void release() {
+    frameConverter.release();
+    morphingMatrix.release();
+    dilateKernel.release();
+    clearMat.release();
+    dilate.release();
+  }
+}
@@ -0,0 +1,93 @@
+package video_pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import object_tracker.Track;
+
+/**
+ * Writes the tracked motion as JSON Lines, one line per frame with moving objects:
+ * <pre>{"frame":12,"timeMs":480.0,"objects":[{"id":3,"x":40,"y":16,"width":52,"height":70,"pixels":1630}]}</pre>
+ * Coordinates and pixel counts are in pixels of the full frame. Lines are collected and written to the file channel
+ * in batches, so a run makes one write call per {@code batchSize} events.
+ */
+public class MotionEventWriter implements Closeable {
+
+  private final FileChannel channel;
+  private final double fps;
+  private final int batchSize;
+  private final StringBuilder batch = new StringBuilder();
+  private int batched;
+
+  /**
+   * @param fps frame rate of the source video, frames of a video without one get {@code 0} as time
+   */
+  public MotionEventWriter(Path output, double fps, int batchSize) throws IOException {
+    this.channel = FileChannel.open(output,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.fps = fps;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Adds the event of a frame, tracks found on a pyramid level are scaled by {@code scale} to the full frame.
+   */
+  public void write(int frameIndex, List<Track> tracks, int scale) throws IOException {
+    if (tracks.isEmpty()) {
+      return;
+    }
+
+    batch.append("{\"frame\":").append(frameIndex)
+        .append(",\"timeMs\":").append(fps > 0 ? Math.round(frameIndex * 10_000.0 / fps) / 10.0 : 0)
+        .append(",\"objects\":[");
+
+    for (int i = 0; i < tracks.size(); i++) {
+      Track track = tracks.get(i);
+      long x = Math.round(track.getMinX() * scale);
+      long y = Math.round(track.getMinY() * scale);
+
+      if (i > 0) {
+        batch.append(',');
+      }
+      batch.append("{\"id\":").append(track.getId())
+          .append(",\"x\":").append(x)
+          .append(",\"y\":").append(y)
+          .append(",\"width\":").append(Math.round((track.getMaxX() + 1) * scale) - x)
+          .append(",\"height\":").append(Math.round((track.getMaxY() + 1) * scale) - y)
+          .append(",\"pixels\":").append((long) track.getPixelCount() * scale * scale)
+          .append('}');
+    }
+    batch.append("]}\n");
+
+    if (++batched >= batchSize) {
+      flush();
+    }
+  }
+
+  public void flush() throws IOException {
+    if (batched == 0) {
+      return;
+    }
+
+    ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    batch.setLength(0);
+    batched = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
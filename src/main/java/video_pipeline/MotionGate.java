@@ -0,0 +1,98 @@
+package video_pipeline;
+
+import java.util.Arrays;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Cheap test whether anything moved before a frame is sent to edge detection. The frame is subsampled with nearest
+ * neighbour scaling, converted to luma and split into square blocks. The frame passes when the sum of absolute
+ * differences of any block against the reference exceeds the threshold times the pixels of the block, blocks cut by
+ * the border are compared against their own area. The reference is the last frame that passed, so slow motion adds
+ * up over idle frames until it opens the gate.
+ */
+class MotionGate {
+
+  private final int step;
+  private final int blockSize;
+  private final int threshold;
+
+  private final Mat small = new Mat();
+  private final Mat luma = new Mat();
+  private byte[] current = new byte[0];
+  private byte[] reference = new byte[0];
+  private int[] blockSums = new int[0];
+
+  /**
+   * @param step      distance in pixels between sampled pixels
+   * @param blockSize side of a block in sampled pixels
+   * @param threshold mean absolute luma difference per sampled pixel that makes a block moving
+   */
+  MotionGate(int step, int blockSize, int threshold) {
+    this.step = Math.max(1, step);
+    this.blockSize = Math.max(1, blockSize);
+    this.threshold = threshold;
+  }
+
+  /**
+   * Returns {@code true} when some block of {@code frame} moved since the last frame that passed, the first frame and
+   * frames of a new size always pass.
+   */
+  boolean passes(Mat frame) {
+    int width = Math.max(1, frame.cols() / step);
+    int height = Math.max(1, frame.rows() / step);
+    Imgproc.resize(frame, small, new Size(width, height), 0, 0, Imgproc.INTER_NEAREST);
+    if (small.channels() > 1) {
+      Imgproc.cvtColor(small, luma, Imgproc.COLOR_BGR2GRAY);
+    } else {
+      small.copyTo(luma);
+    }
+
+    if (current.length != width * height) {
+      current = new byte[width * height];
+      reference = new byte[width * height];
+      luma.get(0, 0, reference);
+      return true;
+    }
+
+    luma.get(0, 0, current);
+    if (!anyBlockMoved(width, height)) {
+      return false;
+    }
+
+    byte[] swap = reference;
+    reference = current;
+    current = swap;
+    return true;
+  }
+
+  private boolean anyBlockMoved(int width, int height) {
+    int blocksX = (width + blockSize - 1) / blockSize;
+    if (blockSums.length < blocksX) {
+      blockSums = new int[blocksX];
+    }
+
+    for (int blockY = 0; blockY < height; blockY += blockSize) {
+      Arrays.fill(blockSums, 0, blocksX, 0);
+      int rowEnd = Math.min(height, blockY + blockSize);
+      int rowThreshold = threshold * (rowEnd - blockY);
+
+      for (int y = blockY; y < rowEnd; y++) {
+        int offset = y * width;
+        for (int x = 0; x < width; x++) {
+          blockSums[x / blockSize] += Math.abs((current[offset + x] & 0xff) - (reference[offset + x] & 0xff));
+        }
+      }
+
+      for (int i = 0; i < blocksX; i++) {
+        int blockWidth = Math.min(blockSize, width - i * blockSize);
+        if (blockSums[i] > rowThreshold * blockWidth) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,43 @@
+package video_pipeline;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import object_tracker.TrackerParameters;
+
+@Setter
+@Getter
+@Builder(toBuilder = true)
+public class PipelineParameters {
+
+  @Builder.Default
+  private int workers = Runtime.getRuntime().availableProcessors(); //Threads detecting edges of different frames
+  @Builder.Default
+  private int queueDepth = 16; //Frames decoded ahead of the writer, bounds the memory held by the pipeline
+  @Builder.Default
+  private int pyramidLevel = -1; //Frames are detected at this pyramid level, each halves the width and height, -1 picks it by the video size
+  @Builder.Default
+  private int diffFramesCount = 4; //Edge maps collected before motion is searched
+  @Builder.Default
+  private int minFragmentPixels = 20; //Motion components smaller than this are dropped before merging, sizes are in pixels of the pyramid level
+  @Builder.Default
+  private int minObjectPixels = 500; //Merged boxes smaller than this are not tracked
+  @Builder.Default
+  private int mergeGap = 8; //Largest distance in pixels between merged boxes
+  @Builder.Default
+  private int detectionInterval = 1; //Detect every n-th frame, frames in between show predicted track positions
+  @Builder.Default
+  private int gateThreshold = 0; //Mean luma difference of a block that lets a frame into detection, 0 detects all
+  @Builder.Default
+  private int gateStep = 4; //The motion gate samples every n-th pixel of every n-th row
+  @Builder.Default
+  private int gateBlockSize = 8; //Side of a motion gate block in sampled pixels
+  @Builder.Default
+  private double frameBudgetMillis = 0; //Wall time allowed per frame, 0 keeps the detection interval fixed
+  @Builder.Default
+  private boolean budgetFromFrameRate = false; //VideoFileProcessor sets the frame budget to the frame period of a video
+  @Builder.Default
+  private int maxDetectionInterval = 5; //Largest interval the rate controller may choose, at most maxMisses of tracks
+  @Builder.Default
+  private TrackerParameters trackerParameters = TrackerParameters.builder().build(); //Matching and lifetime of tracks
+}
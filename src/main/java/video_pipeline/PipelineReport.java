@@ -0,0 +1,24 @@
+package video_pipeline;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Totals of one {@link VideoPipeline#process} run.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PipelineReport {
+
+  private final int writtenFrames;
+  private final int shedFrames; //Frames written with predicted tracks because detection was skipped for them
+  private final int idleFrames; //Frames drawn with the current tracks because the motion gate found no moving block
+  private final int lastDetectionInterval; //Interval chosen by the rate controller at the end of the video
+
+  /**
+   * Share of the written frames that skipped edge detection, either idle or shed.
+   */
+  public double getSkipRatio() {
+    return writtenFrames == 0 ? 0 : (double) (idleFrames + shedFrames) / writtenFrames;
+  }
+}
@@ -0,0 +1,58 @@
+package video_pipeline;
+
+/**
+ * Chooses how often frames are detected so the pipeline keeps up with a time budget per frame. The writer reports
+ * the wall time of every written frame, its moving average is compared with the budget: over budget the detection
+ * interval grows by one, well under budget it shrinks by one. Changes are spaced by the number of frames that are
+ * already queued with the old interval, so every step is judged on frames it actually affected.
+ */
+class RateController {
+
+  //Weight of the newest frame time in the moving average
+  private static final double SMOOTHING = 0.1;
+  //The interval shrinks only when the average leaves this share of the budget free
+  private static final double HEADROOM = 0.7;
+
+  private final long budgetNanos;
+  private final int minInterval;
+  private final int maxInterval;
+  private final int settleFrames;
+
+  private volatile int interval;
+  private double averageNanos;
+  private int framesSinceChange;
+
+  RateController(long budgetNanos, int minInterval, int maxInterval, int settleFrames) {
+    this.budgetNanos = budgetNanos;
+    this.minInterval = Math.max(1, minInterval);
+    this.maxInterval = Math.max(this.minInterval, maxInterval);
+    this.settleFrames = settleFrames;
+    this.interval = this.minInterval;
+  }
+
+  /**
+   * Detection interval for the frames decoded now, may be read from another thread than the one reporting times.
+   */
+  int getInterval() {
+    return interval;
+  }
+
+  /**
+   * Takes the time spent on one written frame and adjusts the interval when the average drifted from the budget.
+   */
+  void frameWritten(long nanos) {
+    averageNanos = averageNanos == 0 ? nanos : averageNanos + SMOOTHING * (nanos - averageNanos);
+    if (budgetNanos <= 0 || ++framesSinceChange < settleFrames + interval) {
+      return;
+    }
+
+    int current = interval;
+    if (averageNanos > budgetNanos && current < maxInterval) {
+      interval = current + 1;
+      framesSinceChange = 0;
+    } else if (averageNanos < budgetNanos * HEADROOM && current > minInterval) {
+      interval = current - 1;
+      framesSinceChange = 0;
+    }
+  }
+}
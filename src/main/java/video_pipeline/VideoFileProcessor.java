@@ -0,0 +1,106 @@
+package video_pipeline;
+
+import static org.opencv.videoio.Videoio.CAP_PROP_FOURCC;
+import static org.opencv.videoio.Videoio.CAP_PROP_FPS;
+import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_COUNT;
+import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT;
+import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH;
+
+import canny_filter.CannyEdgeDetector;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.opencv.core.Size;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+import process_bar.ProcessBar;
+import utils.ImageUtils;
+
+/**
+ * Opens a video file, runs it through a {@link VideoPipeline} and writes the annotated copy, or in headless mode only
+ * the motion events of {@link MotionEventWriter}. Several files may be processed at once, each of them gets its own
+ * copy of the parameters with the frame budget of its video and, unless the parameters set one, its pyramid level.
+ * Every file also gets a new detector, so smoothed thresholds and cached frames of one video never leak into the next.
+ */
+public class VideoFileProcessor {
+
+  private static final double MAX_FPS = 30;
+  private static final int EVENT_BATCH_SIZE = 256;
+
+  private final PipelineParameters parameters;
+  private final Supplier<CannyEdgeDetector> detectors;
+  private final ExecutorService workers;
+  private final Size maxDetectionSize;
+  @Getter
+  private final boolean headless;
+
+  /**
+   * @param detectors        creates the edge detector of a file
+   * @param workers          pool detecting the frames of all files, {@code null} gives every file its own pool
+   * @param maxDetectionSize without a pyramid level in {@code parameters} videos are detected on the lowest level
+   *                         fitting into it
+   * @param headless         write JSON Lines motion events instead of a video
+   */
+  public VideoFileProcessor(PipelineParameters parameters, Supplier<CannyEdgeDetector> detectors,
+      ExecutorService workers, Size maxDetectionSize, boolean headless) {
+    this.parameters = parameters;
+    this.detectors = detectors;
+    this.workers = workers;
+    this.maxDetectionSize = maxDetectionSize;
+    this.headless = headless;
+  }
+
+  /**
+   * @param input anything {@link VideoCapture} opens: a video file, a stream URL or an image sequence pattern
+   */
+  public PipelineReport process(String input, File output, boolean showProgress)
+      throws IOException, InterruptedException, ExecutionException {
+    VideoCapture capture = new VideoCapture(input);
+    if (!capture.isOpened()) {
+      throw new IOException("Can't open video " + input);
+    }
+
+    VideoWriter writer = null;
+    MotionEventWriter events = null;
+    try {
+      double sourceFps = capture.get(CAP_PROP_FPS);
+      double fps = Math.min(sourceFps, MAX_FPS);
+      int codec = (int) capture.get(CAP_PROP_FOURCC);
+      Size videoSize = new Size(capture.get(CAP_PROP_FRAME_WIDTH), capture.get(CAP_PROP_FRAME_HEIGHT));
+
+      if (headless) {
+        events = new MotionEventWriter(output.toPath(), sourceFps, EVENT_BATCH_SIZE);
+      } else {
+        writer = new VideoWriter(output.getPath(), codec, fps, videoSize);
+        if (!writer.isOpened()) {
+          throw new IOException("Can't open video writer " + output);
+        }
+      }
+
+      PipelineParameters fileParameters = parameters.toBuilder().build();
+      if (parameters.getPyramidLevel() < 0) {
+        fileParameters.setPyramidLevel(ImageUtils.pyramidLevelFitting(videoSize, maxDetectionSize));
+      }
+      if (parameters.isBudgetFromFrameRate()) {
+        fileParameters.setFrameBudgetMillis(fps > 0 ? 1000 / fps : 0);
+      }
+
+      ProcessBar processBar = showProgress
+          ? new ProcessBar((int) capture.get(CAP_PROP_FRAME_COUNT), "Motion detection progress")
+          : null;
+      return new VideoPipeline(fileParameters, detectors.get(), workers)
+          .process(capture, writer, events, videoSize, processBar);
+    } finally {
+      if (events != null) {
+        events.close();
+      }
+      if (writer != null) {
+        writer.release();
+      }
+      capture.release();
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package video_pipeline;
+
+import canny_filter.CannyEdgeDetector;
+import image_plane.BitPlane;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import object_tracker.Track;
+import object_tracker.TrackDrawingTool;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+import process_bar.ProcessBar;
+import utils.FrameConverter;
+import utils.ImageUtils;
+
+/**
+ * Processes a video in three stages. A decoder thread reads frames and submits their edge detection to a pool of
+ * workers, so several frames are detected at once. The future of every frame is queued in decoding order, the calling
+ * thread takes them one by one and waits for each, which restores the order for the diff history, the tracker and the
+ * {@link VideoWriter} even though frames complete out of order. The bounded queue makes the decoder wait
+ * when it is {@link PipelineParameters#getQueueDepth()} frames ahead.
+ *
+ * <p>Instead of or next to the video the tracks of every frame can be streamed to a {@link MotionEventWriter}, without
+ * a {@link VideoWriter} frames are neither drawn nor encoded.
+ *
+ * <p>Edges, motion and tracks are found on the {@link PipelineParameters#getPyramidLevel()} of every frame, the
+ * tracked boxes are scaled back and drawn on the frame in its full size. An automatic level detects the full frame
+ * here, {@link VideoFileProcessor} resolves it for the size of its video.
+ *
+ * <p>With a {@link PipelineParameters#getGateThreshold()} the decoder passes every frame through a {@link MotionGate}
+ * first, frames without a moving block skip detection and the tracker, they are drawn with the current tracks.
+ *
+ * <p>With a {@link PipelineParameters#getFrameBudgetMillis()} the detection interval follows the time actually spent
+ * per written frame, see {@link RateController}. Frames that skip detection are drawn with the positions predicted by
+ * the tracker and counted as shed in the {@link PipelineReport}. Only detected frames enter the diff history, so with
+ * an interval of n its {@link PipelineParameters#getDiffFramesCount()} edge maps span n times as many frames and
+ * fast objects leave a longer trail in the motion mask. The interval and its cap count shed frames only, frames
+ * the gate skipped do not bring the next detection closer.
+ */
+@Slf4j
+public class VideoPipeline {
+
+  //Queued after the last frame, its index is never read
+  private static final DetectedFrame END_OF_VIDEO = new DetectedFrame(-1, null, null, false);
+
+  private final PipelineParameters parameters;
+  private final CannyEdgeDetector detector;
+  private final ExecutorService sharedWorkers;
+  private final int pyramidLevel;
+  //Converters of workers between two frames, released at the end of every video so shared workers keep no matrices
+  private final Queue<FrameConverter> freeConverters = new ConcurrentLinkedQueue<>();
+  //Edge planes the annotator is done with, workers pack the next edge maps into them instead of allocating
+  private final Queue<BitPlane> freeEdges = new ConcurrentLinkedQueue<>();
+
+  public VideoPipeline(PipelineParameters parameters, CannyEdgeDetector detector) {
+    this(parameters, detector, null);
+  }
+
+  /**
+   * @param sharedWorkers pool detecting frames of several pipelines, {@code null} starts a pool of
+   *                      {@link PipelineParameters#getWorkers()} threads for every processed video
+   */
+  public VideoPipeline(PipelineParameters parameters, CannyEdgeDetector detector, ExecutorService sharedWorkers) {
+    this.parameters = parameters;
+    this.detector = detector;
+    this.sharedWorkers = sharedWorkers;
+    this.pyramidLevel = Math.max(0, parameters.getPyramidLevel());
+  }
+
+  /**
+   * Annotates every frame of {@code capture} with the tracked motion and writes it to {@code writer} in order.
+   * {@code processBar} may be {@code null}.
+   *
+   * @return number of written and shed frames
+   */
+  public PipelineReport process(VideoCapture capture, VideoWriter writer, Size videoSize, ProcessBar processBar)
+      throws IOException, InterruptedException, ExecutionException {
+    return process(capture, writer, null, videoSize, processBar);
+  }
+
+  /**
+   * Processes {@code capture} like {@link #process(VideoCapture, VideoWriter, Size, ProcessBar)} and reports the tracks
+   * of every frame to {@code events}. Without a {@code writer} frames are neither drawn nor encoded, either of them may
+   * be {@code null}.
+   */
+  public PipelineReport process(VideoCapture capture, VideoWriter writer, MotionEventWriter events, Size videoSize,
+      ProcessBar processBar) throws IOException, InterruptedException, ExecutionException {
+    ExecutorService workers = sharedWorkers != null
+        ? sharedWorkers
+        : Executors.newFixedThreadPool(Math.max(1, parameters.getWorkers()));
+    BlockingQueue<Future<DetectedFrame>> pending = new ArrayBlockingQueue<>(Math.max(1, parameters.getQueueDepth()));
+    //A lost object keeps its track for maxMisses detections, longer intervals would extrapolate it too far
+    int maxInterval = Math.min(parameters.getMaxDetectionInterval(),
+        parameters.getTrackerParameters().getMaxMisses());
+    RateController rateController = new RateController((long) (parameters.getFrameBudgetMillis() * 1_000_000),
+        parameters.getDetectionInterval(), maxInterval, parameters.getQueueDepth());
+    Thread decoder = new Thread(() -> decode(capture, workers, pending, rateController), "frame-decoder");
+    decoder.start();
+
+    Size detectionSize = ImageUtils.pyramidLevelSize(videoSize, pyramidLevel);
+    //Motion masks are labeled in strips on the pool the detector splits frames on, if it has one
+    MotionAnnotator annotator = new MotionAnnotator(parameters, (int) detectionSize.width, (int) detectionSize.height,
+        detector.getPool());
+    TrackDrawingTool trackDrawingTool = new TrackDrawingTool();
+    int scale = 1 << pyramidLevel;
+    int written = 0;
+    int shed = 0;
+    int idle = 0;
+    long lastWrite = System.nanoTime();
+    DetectedFrame frame = null;
+
+    try {
+      while (true) {
+        frame = pending.take().get();
+        if (frame == END_OF_VIDEO) {
+          if (processBar != null) {
+            processBar.step();
+          }
+          break;
+        }
+
+        List<Track> tracks;
+        if (frame.isIdle()) {
+          idle++;
+          tracks = annotator.currentTracks();
+        } else {
+          tracks = annotator.annotate(frame);
+          if (frame.getEdges() != null) {
+            //The history holds a copy, so the plane can take the edges of a later frame
+            freeEdges.offer(frame.getEdges());
+          } else {
+            shed++;
+          }
+        }
+
+        if (tracks != null && writer != null) {
+          trackDrawingTool.drawTracks(frame.getFrame(), tracks, scale);
+        }
+        if (tracks != null && events != null) {
+          events.write(frame.getIndex(), tracks, scale);
+        }
+
+        if (writer != null) {
+          writer.write(frame.getFrame());
+        }
+        frame.getFrame().release();
+        frame = null;
+        if (processBar != null) {
+          processBar.step();
+        }
+        written++;
+
+        long now = System.nanoTime();
+        rateController.frameWritten(now - lastWrite);
+        lastWrite = now;
+      }
+    } finally {
+      decoder.interrupt();
+      if (workers != sharedWorkers) {
+        workers.shutdownNow();
+      }
+      decoder.join();
+      //Frames of a failed video must not keep the shared workers busy, the ones already decoded or detected are freed
+      if (frame != null && frame != END_OF_VIDEO) {
+        frame.getFrame().release();
+      }
+      for (Future<DetectedFrame> future : pending) {
+        if (!future.cancel(true) && !future.isCancelled()) {
+          releaseFrame(future);
+        }
+      }
+      annotator.release();
+      for (FrameConverter converter = freeConverters.poll(); converter != null; converter = freeConverters.poll()) {
+        converter.release();
+      }
+    }
+
+    return new PipelineReport(written, shed, idle, rateController.getInterval());
+  }
+
+  private BitPlane detectEdges(Mat frame) {
+    Mat level = ImageUtils.pyramidLevel(frame, pyramidLevel);
+    FrameConverter converter = freeConverters.poll();
+    if (converter == null) {
+      converter = new FrameConverter();
+    }
+
+    try {
+      return detector.detectEdges(converter.toImage(level), freeEdges.poll());
+    } finally {
+      freeConverters.offer(converter);
+      if (level != frame) {
+        level.release();
+      }
+    }
+  }
+
+  private static void releaseFrame(Future<DetectedFrame> future) {
+    try {
+      DetectedFrame frame = future.get();
+      if (frame.getFrame() != null) {
+        frame.getFrame().release();
+      }
+    } catch (ExecutionException e) {
+      //The failure is already reported by the frame that stopped the writer
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void decode(VideoCapture capture, ExecutorService workers, BlockingQueue<Future<DetectedFrame>> pending,
+      RateController rateController) {
+    try {
+      try {
+        int index = 0;
+        int detected = 0;
+        int skipped = 0;   //Frames shed since the last detection, gated frames are not counted
+        MotionGate gate = parameters.getGateThreshold() > 0
+            ? new MotionGate(parameters.getGateStep(), parameters.getGateBlockSize(), parameters.getGateThreshold())
+            : null;
+
+        while (capture.isOpened()) {
+          Mat frame = new Mat();
+          if (!capture.read(frame)) {
+            break;
+          }
+
+          int frameIndex = index++;
+          if (gate != null && !gate.passes(frame)) {
+            pending.put(CompletableFuture.completedFuture(new DetectedFrame(frameIndex, frame, null, true)));
+            continue;
+          }
+
+          boolean detect = detected < parameters.getDiffFramesCount()
+              || skipped + 1 >= rateController.getInterval();
+
+          if (detect) {
+            detected++;
+            skipped = 0;
+            pending.put(workers.submit(() -> new DetectedFrame(frameIndex, frame, detectEdges(frame), false)));
+          } else {
+            skipped++;
+            pending.put(CompletableFuture.completedFuture(new DetectedFrame(frameIndex, frame, null, false)));
+          }
+        }
+
+        pending.put(CompletableFuture.completedFuture(END_OF_VIDEO));
+      } catch (RuntimeException e) {
+        //Hand the failure to the writer, which rethrows it from Future.get
+        CompletableFuture<DetectedFrame> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        pending.put(failed);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package canny_filter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import image_plane.BitPlane;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CannyEdgeDetectorTest {
+
+  //Odd sizes, so strips and incremental blocks do not line up with the frame borders
+  private static final int WIDTH = 203;
+  private static final int HEIGHT = 157;
+
+  @Test
+  void parallelStripsMatchSequentialDetection() {
+    BufferedImage frame = frame(1, 0);
+
+    for (ThresholdMode mode : ThresholdMode.values()) {
+      byte[] sequential = edges(detector(Parameters.builder().thresholdMode(mode)), frame);
+
+      for (int parallelism : new int[]{2, 3, 8}) {
+        byte[] parallel = edges(detector(Parameters.builder().thresholdMode(mode).parallelism(parallelism)), frame);
+
+        assertArrayEquals(sequential, parallel, mode + " with parallelism " + parallelism);
+      }
+    }
+  }
+
+  @Test
+  void fastDirectionsMatchExactOnes() {
+    for (int x = -600; x <= 600; x++) {
+      for (int y = -600; y <= 600; y++) {
+        assertEquals(CannyEdgeDetector.getDirection(x, y), CannyEdgeDetector.getFastDirection(x, y),
+            "direction of (" + x + ", " + y + ")");
+      }
+    }
+  }
+
+  @Test
+  void fastDirectionsMatchExactOnesAlongBinBorders() {
+    double[] slopes = {Math.tan(Math.toRadians(22.5)), Math.tan(Math.toRadians(67.5))};
+
+    for (int x = 1; x <= Short.MAX_VALUE; x++) {
+      for (double slope : slopes) {
+        int border = (int) (x * slope);
+
+        for (int y = border - 1; y <= Math.min(Short.MAX_VALUE, border + 1); y++) {
+          for (int sign = -1; sign <= 1; sign += 2) {
+            assertEquals(CannyEdgeDetector.getDirection(x, sign * y), CannyEdgeDetector.getFastDirection(x, sign * y),
+                "direction of (" + x + ", " + sign * y + ")");
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void fastModeWithEuclideanNormMatchesExactMode() {
+    BufferedImage frame = frame(2, 0);
+
+    byte[] exact = edges(detector(Parameters.builder().gradientMode(GradientMode.EXACT)), frame);
+    byte[] fast = edges(detector(Parameters.builder()
+        .gradientMode(GradientMode.FAST)
+        .magnitudeNorm(MagnitudeNorm.EUCLIDEAN)), frame);
+
+    assertArrayEquals(exact, fast);
+  }
+
+  @Test
+  void incrementalDetectionMatchesFullDetection() {
+    BufferedImage first = frame(3, 0);
+    BufferedImage second = frame(3, 40);
+
+    //Incremental frames reuse the thresholds of the last full detection, so does the full detector here
+    CannyEdgeDetector incremental = detector(Parameters.builder()
+        .incremental(true)
+        .incrementalTolerance(0)
+        .incrementalBlockSize(16)
+        .incrementalMaxChanged(1));
+    CannyEdgeDetector full = detector(Parameters.builder().statisticsInterval(2));
+
+    assertArrayEquals(edges(full, first), edges(incremental, first));
+    assertArrayEquals(edges(full, second), edges(incremental, second));
+  }
+
+  private static CannyEdgeDetector detector(Parameters.ParametersBuilder parameters) {
+    CannyEdgeDetector detector = new CannyEdgeDetector();
+    detector.setParameters(parameters.build());
+
+    return detector;
+  }
+
+  private static byte[] edges(CannyEdgeDetector detector, BufferedImage frame) {
+    BitPlane edges = detector.detectEdges(frame, null);
+    byte[] pixels = new byte[edges.getWidth() * edges.getHeight()];
+    edges.unpack(pixels, (byte) 1);
+
+    int count = 0;
+    for (byte pixel : pixels) {
+      count += pixel;
+    }
+    assertTrue(count > 0, "frame has no edges");
+
+    return pixels;
+  }
+
+  /**
+   * Anti-aliased shapes on a gradient with noise. {@code shift} moves one of the shapes, the rest stays the same.
+   */
+  private static BufferedImage frame(long seed, int shift) {
+    Random random = new Random(seed);
+    BufferedImage frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+    Graphics2D graphics = frame.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    graphics.setPaint(new GradientPaint(0, 0, Color.DARK_GRAY, WIDTH, HEIGHT, Color.LIGHT_GRAY));
+    graphics.fillRect(0, 0, WIDTH, HEIGHT);
+
+    for (int i = 0; i < 12; i++) {
+      graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+      int x = random.nextInt(WIDTH) - 20;
+      int y = random.nextInt(HEIGHT) - 20;
+      int w = 10 + random.nextInt(60);
+      int h = 10 + random.nextInt(60);
+      if (random.nextBoolean()) {
+        graphics.fillOval(x, y, w, h);
+      } else {
+        graphics.rotate(random.nextDouble(), x, y);
+        graphics.fillRect(x, y, w, h);
+        graphics.setTransform(new AffineTransform());
+      }
+    }
+
+    graphics.setColor(Color.WHITE);
+    graphics.fillOval(30 + shift, 50, 35, 25);
+    graphics.dispose();
+
+    Random noise = new Random(seed);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int rgb = frame.getRGB(x, y);
+        int offset = noise.nextInt(9) - 4;
+        int r = clamp(((rgb >> 16) & 0xFF) + offset);
+        int g = clamp(((rgb >> 8) & 0xFF) + offset);
+        int b = clamp((rgb & 0xFF) + offset);
+        frame.setRGB(x, y, (r << 16) | (g << 8) | b);
+      }
+    }
+
+    return frame;
+  }
+
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+}
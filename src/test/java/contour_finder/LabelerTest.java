@@ -0,0 +1,188 @@
+package contour_finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import image_plane.IntPlane;
+import image_plane.RunLengthMask;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link ComponentLabeler} and {@link RunLabeler}, on one strip and split into strips, against a plain
+ * 8-connected flood fill numbering components in raster order.
+ */
+class LabelerTest {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+  private static final int[] STRIPS = {1, 2, 3, 7, 16};
+
+  private final Random random = new Random(11);
+
+  @AfterAll
+  static void shutdownPool() {
+    POOL.shutdown();
+  }
+
+  @Test
+  void componentLabelerMatchesFloodFill() {
+    ComponentLabeler labeler = new ComponentLabeler();
+
+    for (int i = 0; i < 100; i++) {
+      IntPlane mask = randomMask();
+      int[] expected = floodFill(mask);
+      int expectedCount = max(expected);
+
+      for (int strips : STRIPS) {
+        IntPlane labels = labeler.label(mask, POOL, strips);
+
+        assertEquals(expectedCount, labeler.getComponentCount(), "components with " + strips + " strips");
+        for (int y = 0; y < mask.getHeight(); y++) {
+          for (int x = 0; x < mask.getWidth(); x++) {
+            assertEquals(expected[y * mask.getWidth() + x], labels.get(x, y), "label of " + x + ", " + y);
+          }
+        }
+        assertStats(expected, mask.getWidth(), labeler.getStats());
+      }
+    }
+  }
+
+  @Test
+  void runLabelerMatchesFloodFill() {
+    RunLabeler labeler = new RunLabeler();
+    RunLengthMask runs = new RunLengthMask();
+
+    for (int i = 0; i < 100; i++) {
+      IntPlane mask = randomMask();
+      int width = mask.getWidth();
+      int[] expected = floodFill(mask);
+      toRuns(mask, runs);
+
+      for (int strips : STRIPS) {
+        int[] labels = labeler.label(runs, POOL, strips);
+
+        assertEquals(max(expected), labeler.getComponentCount(), "components with " + strips + " strips");
+        for (int y = 0; y < mask.getHeight(); y++) {
+          for (int run = runs.getRowStart(y); run < runs.getRowEnd(y); run++) {
+            for (int x = runs.getRunStart(run); x < runs.getRunEnd(run); x++) {
+              assertEquals(expected[y * width + x], labels[run], "label of " + x + ", " + y);
+            }
+          }
+        }
+        assertStats(expected, width, labeler.getStats());
+      }
+    }
+  }
+
+  private IntPlane randomMask() {
+    int width = 1 + random.nextInt(70);
+    int height = 1 + random.nextInt(70);
+    double density = 0.1 + random.nextDouble() * 0.5;
+    IntPlane mask = new IntPlane(width, height);
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        mask.set(x, y, random.nextDouble() < density ? 255 : 0);
+      }
+    }
+
+    return mask;
+  }
+
+  private static void toRuns(IntPlane mask, RunLengthMask runs) {
+    int width = mask.getWidth();
+    byte[] row = new byte[width];
+    runs.reset(width, mask.getHeight());
+
+    for (int y = 0; y < mask.getHeight(); y++) {
+      for (int x = 0; x < width; x++) {
+        row[x] = (byte) mask.get(x, y);
+      }
+      runs.appendRow(row, 0);
+    }
+  }
+
+  private static int[] floodFill(IntPlane mask) {
+    int width = mask.getWidth();
+    int height = mask.getHeight();
+    int[] labels = new int[width * height];
+    Deque<int[]> stack = new ArrayDeque<>();
+    int next = 0;
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (mask.get(x, y) == 0 || labels[y * width + x] != 0) {
+          continue;
+        }
+
+        int label = ++next;
+        labels[y * width + x] = label;
+        stack.push(new int[]{x, y});
+
+        while (!stack.isEmpty()) {
+          int[] pixel = stack.pop();
+          for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+              int nx = pixel[0] + dx;
+              int ny = pixel[1] + dy;
+              if (nx >= 0 && ny >= 0 && nx < width && ny < height && mask.get(nx, ny) != 0
+                  && labels[ny * width + nx] == 0) {
+                labels[ny * width + nx] = label;
+                stack.push(new int[]{nx, ny});
+              }
+            }
+          }
+        }
+      }
+    }
+
+    return labels;
+  }
+
+  private static void assertStats(int[] expected, int width, ComponentStats stats) {
+    int count = max(expected);
+    int[] pixels = new int[count + 1];
+    int[] minX = new int[count + 1];
+    int[] maxX = new int[count + 1];
+    int[] minY = new int[count + 1];
+    int[] maxY = new int[count + 1];
+    Arrays.fill(minX, Integer.MAX_VALUE);
+    Arrays.fill(minY, Integer.MAX_VALUE);
+    Arrays.fill(maxX, Integer.MIN_VALUE);
+    Arrays.fill(maxY, Integer.MIN_VALUE);
+
+    for (int i = 0; i < expected.length; i++) {
+      int label = expected[i];
+      if (label != 0) {
+        int x = i % width;
+        int y = i / width;
+        pixels[label]++;
+        minX[label] = Math.min(minX[label], x);
+        maxX[label] = Math.max(maxX[label], x);
+        minY[label] = Math.min(minY[label], y);
+        maxY[label] = Math.max(maxY[label], y);
+      }
+    }
+
+    for (int label = 1; label <= count; label++) {
+      assertEquals(pixels[label], stats.getPixelCount(label), "pixels of " + label);
+      assertEquals(minX[label], stats.getMinX(label), "min x of " + label);
+      assertEquals(maxX[label], stats.getMaxX(label), "max x of " + label);
+      assertEquals(minY[label], stats.getMinY(label), "min y of " + label);
+      assertEquals(maxY[label], stats.getMaxY(label), "max y of " + label);
+    }
+  }
+
+  private static int max(int[] labels) {
+    int max = 0;
+    for (int label : labels) {
+      max = Math.max(max, label);
+    }
+
+    return max;
+  }
+}
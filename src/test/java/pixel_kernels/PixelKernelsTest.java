@@ -0,0 +1,99 @@
+package pixel_kernels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import image_plane.IntPlane;
+import image_plane.ShortPlane;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares {@link KernelBackends#best()} with {@link ScalarPixelKernels}. Without the vector profile and module both
+ * are the scalar backend, run with {@code mvn -Pvector test} to check the vectorized one.
+ */
+class PixelKernelsTest {
+
+  private static final int WIDTH = 131;
+  private static final int HEIGHT = 67;
+
+  private final PixelKernels scalar = new ScalarPixelKernels();
+  private final PixelKernels best = KernelBackends.best();
+  private final Random random = new Random(7);
+
+  @Test
+  void sobelMatchesScalar() {
+    IntPlane raw = randomPlane(WIDTH, HEIGHT, 256);
+    int[][] mask = new int[5][5];
+    for (int[] row : mask) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] = random.nextInt(21) - 10;
+      }
+    }
+
+    ShortPlane expected = new ShortPlane(WIDTH - 4, HEIGHT - 4);
+    ShortPlane actual = new ShortPlane(WIDTH - 4, HEIGHT - 4);
+    scalar.sobelRows(raw, mask, expected, 0, expected.getHeight());
+    best.sobelRows(raw, mask, actual, 0, actual.getHeight());
+    assertArrayEquals(expected.getData(), actual.getData());
+
+    for (int i = 0; i < 20; i++) {
+      int[] rows = randomRange(expected.getHeight());
+      int[] cols = randomRange(expected.getWidth());
+      expected.fill(0);
+      actual.fill(0);
+      scalar.sobelRegion(raw, mask, expected, rows[0], rows[1], cols[0], cols[1]);
+      best.sobelRegion(raw, mask, actual, rows[0], rows[1], cols[0], cols[1]);
+
+      assertArrayEquals(expected.getData(), actual.getData());
+    }
+  }
+
+  @Test
+  void gaussianMatchesScalar() {
+    IntPlane raw = randomPlane(WIDTH, HEIGHT, 256);
+    int[] taps = {3, 17, 60, 96, 60, 17, 3};
+    int shift = 8;
+
+    IntPlane expected = new IntPlane(WIDTH, HEIGHT);
+    IntPlane actual = new IntPlane(WIDTH, HEIGHT);
+    scalar.gaussianHorizontalRows(raw, expected, taps, shift, 0, HEIGHT);
+    best.gaussianHorizontalRows(raw, actual, taps, shift, 0, HEIGHT);
+    assertArrayEquals(expected.getData(), actual.getData());
+
+    scalar.gaussianVerticalRows(raw, expected, taps, shift, 0, HEIGHT);
+    best.gaussianVerticalRows(raw, actual, taps, shift, 0, HEIGHT);
+    assertArrayEquals(expected.getData(), actual.getData());
+
+    for (int i = 0; i < 20; i++) {
+      int[] rows = randomRange(HEIGHT);
+      int[] cols = randomRange(WIDTH);
+      expected.fill(0);
+      actual.fill(0);
+      scalar.gaussianHorizontalRegion(raw, expected, taps, shift, rows[0], rows[1], cols[0], cols[1]);
+      best.gaussianHorizontalRegion(raw, actual, taps, shift, rows[0], rows[1], cols[0], cols[1]);
+      assertArrayEquals(expected.getData(), actual.getData());
+
+      scalar.gaussianVerticalRegion(raw, expected, taps, shift, rows[0], rows[1], cols[0], cols[1]);
+      best.gaussianVerticalRegion(raw, actual, taps, shift, rows[0], rows[1], cols[0], cols[1]);
+      assertArrayEquals(expected.getData(), actual.getData());
+    }
+  }
+
+  private IntPlane randomPlane(int width, int height, int bound) {
+    IntPlane plane = new IntPlane(width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        plane.set(x, y, random.nextInt(bound));
+      }
+    }
+
+    return plane;
+  }
+
+  private int[] randomRange(int size) {
+    int from = random.nextInt(size);
+    int to = from + 1 + random.nextInt(size - from);
+
+    return new int[]{from, to};
+  }
+}